@@ -0,0 +1,252 @@
+package com.example.realestate.benchmarks;
+
+import com.example.realestate.model.Category;
+import com.example.realestate.model.Listing;
+import com.example.realestate.model.RealEstateModels.*;
+import com.example.realestate.repository.BinarySnapshotCodec;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Seeded synthetic datasets with the shape of real listings: most listings are apartments, a few
+ * large cities hold most of them, areas and prices are log-normal with a long tail, room counts grow
+ * with the area, and prices follow the area, the property type and the city. Coordinates scatter
+ * around the city center, denser towards it, so a radius query finds dense and sparse neighbourhoods.
+ * <p>
+ * Every listing is drawn from a random of its own, seeded by the dataset seed, its category and its
+ * position, so the same size and seed always give the same listings, whether they are built in
+ * memory or streamed to a file.
+ * <p>
+ * Writes a data directory the server can start from: {@code java -cp benchmarks.jar
+ * com.example.realestate.benchmarks.DatasetGenerator <listings> <dataDir> [seed] [json|binary|both]}.
+ * The JSON snapshot is streamed, so its size is only bounded by the disk; the binary one is built in
+ * memory first.
+ */
+public final class DatasetGenerator {
+    public static final long SEED = 42;
+
+    // Share of every category in listings per thousand, in Category order
+    private static final int[] SHARES = {70, 50, 50, 50, 250, 40, 70, 70, 40, 310};
+
+    private static final String[] CITIES = {"Tehran", "Mashhad", "Isfahan", "Karaj", "Shiraz", "Tabriz", "Qom",
+            "Ahvaz", "Kermanshah", "Urmia", "Rasht", "Zahedan", "Kerman", "Yazd", "Bushehr", "Sari"};
+    // Price per square meter relative to the average, by city
+    private static final double[] CITY_PRICES = {2.4, 1.2, 1.4, 1.1, 1.3, 1.0, 0.8,
+            0.8, 0.7, 0.7, 1.0, 0.5, 0.7, 0.8, 0.9, 0.9};
+    // City centers as latitude, longitude, and how far listings spread from them in km
+    private static final double[][] CITY_CENTERS = {{35.6892, 51.3890, 9}, {36.2605, 59.6168, 6}, {32.6546, 51.6680, 6},
+            {35.8400, 50.9391, 5}, {29.5918, 52.5837, 5}, {38.0800, 46.2919, 5}, {34.6416, 50.8746, 4},
+            {31.3183, 48.6706, 4}, {34.3142, 47.0650, 4}, {37.5527, 45.0761, 4}, {37.2808, 49.5832, 3},
+            {29.4963, 60.8629, 3}, {30.2839, 57.0834, 3}, {31.8974, 54.3569, 3}, {28.9234, 50.8203, 3},
+            {36.5633, 53.0601, 3}};
+    // Cumulative Zipf weights of the cities, so that Tehran holds about a third of the listings
+    private static final double[] CITY_WEIGHTS = zipf(CITIES.length, 1.1);
+    private static final String[] STREETS = {"Valiasr", "Enghelab", "Azadi", "Ferdowsi", "Hafez", "Saadi", "Jomhouri",
+            "Keshavarz", "Motahari", "Shariati", "Pasdaran", "Niavaran", "Bahar", "Golestan", "Laleh", "Nargess",
+            "Sepah", "Imam", "Khayyam", "Molavi", "Parvin", "Sohrevardi", "Baharestan", "Janbazan", "Abouzar",
+            "Zand", "Chamran", "Kargar", "Iranshahr", "Vanak"};
+    private static final String[] STREET_KINDS = {"Street", "Street", "Avenue", "Boulevard", "Alley"};
+    private static final String[] FIRST_NAMES = {"Sara", "Reza", "Maryam", "Ali", "Neda", "Omid", "Leila", "Hossein",
+            "Zahra", "Mohammad", "Fatemeh", "Mehdi", "Narges", "Amir", "Parisa", "Hamid", "Shirin", "Saeed",
+            "Mina", "Babak", "Elham", "Kaveh", "Azadeh", "Arash", "Nazanin", "Farhad", "Roya", "Behnam"};
+    private static final String[] LAST_NAMES = {"Karimi", "Azimi", "Ahmadi", "Rostami", "Moradi", "Hosseini",
+            "Mohammadi", "Rezaei", "Jafari", "Ghasemi", "Sadeghi", "Bagheri", "Rahimi", "Kazemi", "Mousavi",
+            "Heidari", "Ebrahimi", "Nouri", "Shahbazi", "Tavakoli", "Parchami", "Najafi", "Zamani", "Farahani"};
+    private static final String[] MAIL_DOMAINS = {"gmail.com", "yahoo.com", "outlook.com", "email.com", "mail.ir"};
+
+    private DatasetGenerator() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("usage: DatasetGenerator <listings> <dataDir> [seed] [json|binary|both]");
+            System.exit(2);
+        }
+        int listings = Integer.parseInt(args[0]);
+        Path dir = Path.of(args[1]);
+        long seed = args.length > 2 ? Long.parseLong(args[2]) : SEED;
+        String format = args.length > 3 ? args[3] : "json";
+        Files.createDirectories(dir);
+        if (format.equals("json") || format.equals("both")) {
+            writeJson(listings, seed, dir.resolve("realestate.json"));
+        }
+        if (format.equals("binary") || format.equals("both")) {
+            try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(dir.resolve("realestate.snap")), 1 << 16)) {
+                BinarySnapshotCodec.write(generate(listings, seed), out);
+            }
+        }
+        System.out.printf("%d listings (seed %d) written to %s%n", listings, seed, dir.toAbsolutePath());
+    }
+
+    public static RealEstate generate(int listings, long seed) {
+        int[] counts = counts(listings);
+        RealEstate data = new RealEstate();
+        for (Category category : Category.values()) {
+            List<Listing> items = new ArrayList<>(counts[category.ordinal()]);
+            for (int i = 0; i < counts[category.ordinal()]; i++) {
+                items.add(stored(category, i, seed));
+            }
+            data = category.withList(data, items);
+        }
+        return data;
+    }
+
+    /**
+     * Streams the dataset as a JSON snapshot ({@code realestate.json}), one listing at a time, in
+     * the layout the server reads and writes.
+     */
+    public static void writeJson(int listings, long seed, Path target) throws IOException {
+        int[] counts = counts(listings);
+        ObjectWriter writer = new ObjectMapper().writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(target), 1 << 16);
+             JsonGenerator json = writer.createGenerator(out)) {
+            json.writeStartObject();
+            for (String ownership : new String[]{"sale", "rent"}) {
+                json.writeObjectFieldStart(ownership);
+                writeList(json, writer, Category.of(ownership, "land"), counts, seed);
+                json.writeObjectFieldStart("commercial");
+                writeList(json, writer, Category.of(ownership, "office"), counts, seed);
+                writeList(json, writer, Category.of(ownership, "shop"), counts, seed);
+                json.writeEndObject();
+                json.writeObjectFieldStart("residential");
+                writeList(json, writer, Category.of(ownership, "villa"), counts, seed);
+                writeList(json, writer, Category.of(ownership, "apartment"), counts, seed);
+                json.writeEndObject();
+                json.writeEndObject();
+            }
+            json.writeEndObject();
+        }
+    }
+
+    private static void writeList(JsonGenerator json, ObjectWriter writer, Category category, int[] counts, long seed)
+            throws IOException {
+        json.writeArrayFieldStart(category.getPropertyType());
+        for (int i = 0; i < counts[category.ordinal()]; i++) {
+            writer.writeValue(json, stored(category, i, seed));
+        }
+        json.writeEndArray();
+    }
+
+    // Listings per category: the shares of the total, with what rounding leaves over going to apartments
+    static int[] counts(int listings) {
+        Category[] categories = Category.values();
+        int[] counts = new int[categories.length];
+        long assigned = 0;
+        for (Category category : categories) {
+            counts[category.ordinal()] = (int) ((long) listings * SHARES[category.ordinal()] / 1000);
+            assigned += counts[category.ordinal()];
+        }
+        counts[Category.RENT_APARTMENT.ordinal()] += (int) (listings - assigned);
+        return counts;
+    }
+
+    // The i-th listing of the category, with its id
+    private static Listing stored(Category category, int i, long seed) {
+        Listing item = listing(category, i, new SplittableRandom(seed * 0x9E3779B97F4A7C15L + ((long) category.ordinal() << 40) + i));
+        item.setId(category.getOwnership() + "-" + category.getPropertyType() + "-" + i);
+        return item;
+    }
+
+    /**
+     * A listing of the category that does not have an id yet, as it would arrive in a create request.
+     * {@code n} only makes the email address unique.
+     */
+    public static Listing listing(Category category, long n, SplittableRandom random) {
+        int city = pick(CITY_WEIGHTS, random);
+        String address = (1 + random.nextInt(300)) + " " + STREETS[random.nextInt(STREETS.length)] + " "
+                + STREET_KINDS[random.nextInt(STREET_KINDS.length)] + ", " + CITIES[city];
+        String first = FIRST_NAMES[random.nextInt(FIRST_NAMES.length)];
+        String last = LAST_NAMES[random.nextInt(LAST_NAMES.length)];
+        String owner = first + " " + last;
+        String email = (first + "." + last).toLowerCase() + n + "@" + MAIL_DOMAINS[random.nextInt(MAIL_DOMAINS.length)];
+
+        String type = category.getPropertyType();
+        double area = switch (type) {
+            case "land" -> Math.max(50, Math.round(logNormal(random, 400, 0.9)));
+            case "office" -> Math.max(20, Math.round(logNormal(random, 110, 0.5)));
+            case "shop" -> Math.max(8, Math.round(logNormal(random, 45, 0.6)));
+            case "villa" -> Math.max(80, Math.round(logNormal(random, 260, 0.45)));
+            default -> Math.max(30, Math.round(logNormal(random, 85, 0.4)));
+        };
+        double typePrice = switch (type) {
+            case "land" -> 0.35;
+            case "office" -> 1.2;
+            case "shop" -> 2.0;
+            case "villa" -> 0.8;
+            default -> 1.0;
+        };
+        // Value of the property, with a long tail of premium listings
+        double value = area * 1500 * typePrice * CITY_PRICES[city] * logNormal(random, 1, 0.3);
+        int rooms = switch (type) {
+            case "office" -> clamp(Math.round(area / 35 + random.nextGaussian()), 1, 12);
+            case "shop" -> clamp(Math.round(area / 40 + 0.5 * random.nextGaussian()), 1, 4);
+            default -> clamp(Math.round(area / 40 + 0.6 * random.nextGaussian()), 1, 6);
+        };
+        int floors = clamp(Math.round(logNormal(random, 5, 0.6)), 1, 40);
+        int yardArea = (int) Math.round(area * (0.4 + 1.6 * random.nextDouble()));
+        String use = random.nextDouble() < 0.65 ? "residential" : "commercial";
+
+        double rentPrice = Math.max(10, Math.round(value * (0.003 + 0.003 * random.nextDouble()) / 10) * 10.0);
+        double mortgage = random.nextDouble() < 0.2 ? 0 : Math.round(rentPrice * (5 + 35 * random.nextDouble()) / 100) * 100.0;
+        // Drawn last, so that every other field stays what the same seed gave before coordinates existed
+        double[] center = CITY_CENTERS[city];
+        double north = center[2] * random.nextGaussian(), east = center[2] * random.nextGaussian();
+        double latitude = Math.round((center[0] + north / 111.32) * 1e6) / 1e6;
+        double longitude = Math.round((center[1] + east / (111.32 * Math.cos(Math.toRadians(center[0])))) * 1e6) / 1e6;
+        SaleData sale = new SaleData(address, email, area, Math.max(1000, Math.round(value / 1000) * 1000.0), owner,
+                latitude, longitude);
+        RentData rent = new RentData(address, email, area, rentPrice, mortgage, owner, latitude, longitude);
+        return switch (category) {
+            case SALE_LAND -> new LandSale(null, use, sale);
+            case SALE_OFFICE -> new OfficeSale(null, rooms, sale);
+            case SALE_SHOP -> new ShopSale(null, rooms, sale);
+            case SALE_VILLA -> new VillaSale(null, yardArea, sale);
+            case SALE_APARTMENT -> new ApartmentSale(null, floors, rooms, sale);
+            case RENT_LAND -> new LandRent(null, use, rent);
+            case RENT_OFFICE -> new OfficeRent(null, rooms, rent);
+            case RENT_SHOP -> new ShopRent(null, rooms, rent);
+            case RENT_VILLA -> new VillaRent(null, yardArea, rent);
+            case RENT_APARTMENT -> new ApartmentRent(null, floors, rooms, rent);
+        };
+    }
+
+    private static double logNormal(SplittableRandom random, double median, double sigma) {
+        return median * Math.exp(sigma * random.nextGaussian());
+    }
+
+    private static int clamp(long value, int min, int max) {
+        return (int) Math.max(min, Math.min(max, value));
+    }
+
+    private static double[] zipf(int n, double exponent) {
+        double[] cumulative = new double[n];
+        double sum = 0;
+        for (int i = 0; i < n; i++) {
+            sum += 1 / Math.pow(i + 1, exponent);
+            cumulative[i] = sum;
+        }
+        for (int i = 0; i < n; i++) {
+            cumulative[i] /= sum;
+        }
+        return cumulative;
+    }
+
+    private static int pick(double[] cumulative, SplittableRandom random) {
+        double r = random.nextDouble();
+        for (int i = 0; i < cumulative.length; i++) {
+            if (r < cumulative[i]) return i;
+        }
+        return cumulative.length - 1;
+    }
+}
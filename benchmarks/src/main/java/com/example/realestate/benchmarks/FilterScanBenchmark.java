@@ -0,0 +1,111 @@
+package com.example.realestate.benchmarks;
+
+import com.example.realestate.index.RangePredicate;
+import com.example.realestate.model.Attribute;
+import com.example.realestate.model.Category;
+import com.example.realestate.model.Listing;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.reflect.Field;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * A price and area filter over every sale apartment, matched three ways: fields looked up by name
+ * on every listing, as /filter did before the indexes; typed attribute readers over the listing
+ * objects; and {@code IndexManager.filter}, which runs the bounds over the primitive columns (or the
+ * price index, when the planner finds it cheaper) and only touches the matching listings.
+ * <p>
+ * {@code selectivity} is the share of listings under the price bound; the area bound keeps about
+ * nine in ten of those.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+public class FilterScanBenchmark {
+    private static final Category CATEGORY = Category.SALE_APARTMENT;
+    private static final double MIN_AREA = 50;
+
+    @Param({"100000", "1000000"})
+    public int listings;
+
+    @Param({"0.01", "0.5"})
+    public double selectivity;
+
+    private ServiceStack stack;
+    private List<Listing> items;
+    private double maxPrice;
+    private List<RangePredicate> predicates;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        stack = ServiceStack.start(DatasetGenerator.generate(listings, DatasetGenerator.SEED), "os-buffered", "json", 1);
+        items = CATEGORY.listOf(stack.repository.get());
+        ToDoubleFunction<Listing> price = Attribute.PRICE.reader(CATEGORY);
+        double[] prices = new double[items.size()];
+        for (int i = 0; i < prices.length; i++) {
+            prices[i] = price.applyAsDouble(items.get(i));
+        }
+        Arrays.sort(prices);
+        maxPrice = prices[(int) Math.min(prices.length - 1, (long) (selectivity * prices.length))];
+        predicates = List.of(
+                new RangePredicate(Attribute.PRICE, Double.NEGATIVE_INFINITY, maxPrice),
+                new RangePredicate(Attribute.AREA, MIN_AREA, Double.POSITIVE_INFINITY));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        stack.close();
+    }
+
+    @Benchmark
+    public int reflectiveFields() throws ReflectiveOperationException {
+        int matches = 0;
+        for (Listing item : items) {
+            Field dataField = item.getClass().getDeclaredField("data");
+            dataField.setAccessible(true);
+            Object data = dataField.get(item);
+            if (data == null) continue;
+            Field priceField = data.getClass().getDeclaredField("fullPrice");
+            priceField.setAccessible(true);
+            Field areaField = data.getClass().getDeclaredField("area");
+            areaField.setAccessible(true);
+            if (priceField.getDouble(data) <= maxPrice && areaField.getDouble(data) >= MIN_AREA) matches++;
+        }
+        return matches;
+    }
+
+    @Benchmark
+    public int typedReaders() {
+        ToDoubleFunction<Listing> price = Attribute.PRICE.reader(CATEGORY);
+        ToDoubleFunction<Listing> area = Attribute.AREA.reader(CATEGORY);
+        int matches = 0;
+        for (Listing item : items) {
+            if (price.applyAsDouble(item) <= maxPrice && area.applyAsDouble(item) >= MIN_AREA) matches++;
+        }
+        return matches;
+    }
+
+    @Benchmark
+    public int indexedFilter() {
+        return stack.indexManager.filter(List.of(CATEGORY), predicates, null, null, null, 0, Integer.MAX_VALUE, null, null)
+                .items().size();
+    }
+}
@@ -0,0 +1,362 @@
+package com.example.realestate.benchmarks;
+
+import com.example.realestate.RealEstateApiApplication;
+import com.example.realestate.model.Category;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Stream;
+
+/**
+ * Open-loop load against the REST API of an embedded server: requests are scheduled at a fixed rate
+ * and each one's latency is measured from the time it was scheduled, not from the time a connection
+ * got around to sending it. A server that falls behind therefore shows the wait of every request
+ * queued behind a slow one (coordinated omission correction); the service time, measured from the
+ * actual send, is reported next to it.
+ * <p>
+ * The server runs in this JVM on a temporary data directory holding a {@link DatasetGenerator}
+ * dataset, so the seeded ids used by lookups exist. {@code --url} targets a running server instead,
+ * which should have been started on a dataset of the same size and seed.
+ * <pre>
+ * java -cp benchmarks.jar com.example.realestate.benchmarks.LoadDriver [--listings=100000] [--seed=42]
+ *     [--rate=200] [--duration=30] [--warmup=10] [--connections=32]
+ *     [--mix=search:35,keyword:15,filter:25,stats:5,get:10,create:7,delete:3] [--url=http://host:port]
+ *     [--any.server.property=value ...]
+ * </pre>
+ * Any other {@code --name=value} is passed to the embedded server as a Spring property.
+ */
+public final class LoadDriver {
+    private static final String API = "/api/v1/real-estate";
+    private static final String DEFAULT_MIX = "search:35,keyword:15,filter:25,stats:5,get:10,create:7,delete:3";
+    private static final String[] KEYWORDS = {"tehran", "shiraz", "valiasr", "karimi", "boulevard", "gmail", "rasht"};
+
+    enum Operation {
+        SEARCH, KEYWORD, FILTER, STATS, GET, CREATE, DELETE;
+
+        static Operation parse(String name) {
+            return valueOf(name.trim().toUpperCase());
+        }
+    }
+
+    private final HttpClient client;
+    private final String base;
+    private final int[] counts;
+    private final long seed;
+    private final Operation[] mix;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    // Listings created by this run, deleted first so that the dataset keeps its size
+    private final ConcurrentLinkedQueue<String> created = new ConcurrentLinkedQueue<>();
+    private final AtomicLong createdCount = new AtomicLong();
+
+    private LoadDriver(String base, int listings, long seed, Operation[] mix) {
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(30))
+                .build();
+        this.base = base + API;
+        this.counts = DatasetGenerator.counts(listings);
+        this.seed = seed;
+        this.mix = mix;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new LinkedHashMap<>();
+        List<String> serverArgs = new ArrayList<>();
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (!arg.startsWith("--") || eq < 0) {
+                System.err.println("Options are --name=value; see the class documentation");
+                System.exit(2);
+            }
+            String name = arg.substring(2, eq);
+            if (name.contains(".")) {
+                serverArgs.add(arg);
+            } else {
+                options.put(name, arg.substring(eq + 1));
+            }
+        }
+        int listings = Integer.parseInt(options.getOrDefault("listings", "100000"));
+        long seed = Long.parseLong(options.getOrDefault("seed", String.valueOf(DatasetGenerator.SEED)));
+        double rate = Double.parseDouble(options.getOrDefault("rate", "200"));
+        int duration = Integer.parseInt(options.getOrDefault("duration", "30"));
+        int warmup = Integer.parseInt(options.getOrDefault("warmup", "10"));
+        int connections = Integer.parseInt(options.getOrDefault("connections", "32"));
+        Operation[] mix = parseMix(options.getOrDefault("mix", DEFAULT_MIX));
+        String url = options.get("url");
+
+        Path dir = null;
+        ConfigurableApplicationContext context = null;
+        try {
+            if (url == null) {
+                dir = Files.createTempDirectory("realestate-load");
+                long started = System.nanoTime();
+                DatasetGenerator.writeJson(listings, seed, dir.resolve("realestate.json"));
+                System.out.printf("Generated %d listings in %.1fs%n", listings, (System.nanoTime() - started) / 1e9);
+                List<String> springArgs = new ArrayList<>(List.of("--server.port=0", "--realestate.data-dir=" + dir,
+                        "--spring.main.banner-mode=off", "--logging.level.root=WARN", "--logging.level.org.springframework=WARN"));
+                springArgs.addAll(serverArgs);
+                started = System.nanoTime();
+                context = new SpringApplicationBuilder(RealEstateApiApplication.class).run(springArgs.toArray(String[]::new));
+                int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+                url = "http://localhost:" + port;
+                System.out.printf("Server started on port %d in %.1fs%n", port, (System.nanoTime() - started) / 1e9);
+            }
+            new LoadDriver(url, listings, seed, mix).run(rate, warmup, duration, connections);
+        } finally {
+            if (context != null) context.close();
+            if (dir != null) delete(dir);
+        }
+    }
+
+    // "search:35,create:5" as 40 slots, so that picking an operation is one array read
+    private static Operation[] parseMix(String spec) {
+        List<Operation> slots = new ArrayList<>();
+        for (String part : spec.split(",")) {
+            String[] pair = part.split(":");
+            Operation operation = Operation.parse(pair[0]);
+            int weight = pair.length > 1 ? Integer.parseInt(pair[1].trim()) : 1;
+            for (int i = 0; i < weight; i++) slots.add(operation);
+        }
+        if (slots.isEmpty()) throw new IllegalArgumentException("Empty mix: " + spec);
+        return slots.toArray(Operation[]::new);
+    }
+
+    private void run(double rate, int warmupSeconds, int seconds, int connections) throws InterruptedException {
+        long interval = (long) (1_000_000_000L / rate);
+        long start = System.nanoTime() + 100_000_000L;
+        long measureFrom = start + warmupSeconds * 1_000_000_000L;
+        long end = measureFrom + seconds * 1_000_000_000L;
+        AtomicLong next = new AtomicLong();
+        Recorder[] recorders = new Recorder[connections];
+        CountDownLatch done = new CountDownLatch(connections);
+
+        for (int c = 0; c < connections; c++) {
+            Recorder recorder = recorders[c] = new Recorder();
+            SplittableRandom random = new SplittableRandom(seed + 7919L * c);
+            Thread thread = new Thread(() -> {
+                try {
+                    while (true) {
+                        long intended = start + next.getAndIncrement() * interval;
+                        if (intended >= end) break;
+                        for (long wait; (wait = intended - System.nanoTime()) > 0; ) {
+                            LockSupport.parkNanos(wait);
+                        }
+                        Operation operation = mix[random.nextInt(mix.length)];
+                        long sent = System.nanoTime();
+                        boolean ok = send(operation, random);
+                        long finished = System.nanoTime();
+                        if (intended >= measureFrom) {
+                            recorder.record(operation, finished - intended, finished - sent, ok);
+                            recorder.last = finished;
+                        }
+                    }
+                } finally {
+                    done.countDown();
+                }
+            }, "load-" + c);
+            thread.setDaemon(true);
+            thread.start();
+        }
+        done.await();
+        report(recorders, rate, measureFrom);
+    }
+
+    private boolean send(Operation operation, SplittableRandom random) {
+        try {
+            return switch (operation) {
+                case CREATE -> create(random);
+                case DELETE -> delete(random);
+                default -> {
+                    HttpResponse<Void> response = client.send(get(read(operation, random)), HttpResponse.BodyHandlers.discarding());
+                    // A lookup of a listing that a delete removed is an answer, not a failure
+                    yield response.statusCode() < 400 || (operation == Operation.GET && response.statusCode() == 404);
+                }
+            };
+        } catch (IOException e) {
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private String read(Operation operation, SplittableRandom random) {
+        String ownership = random.nextBoolean() ? "sale" : "rent";
+        String[] types = {"land", "office", "shop", "villa", "apartment", "commercial", "residential"};
+        return switch (operation) {
+            case SEARCH -> {
+                // Mostly the first pages, as users browse them
+                int page = (int) Math.min(50, -Math.log(1 - random.nextDouble()) * 2);
+                String sort = random.nextInt(4) == 0 ? "&sort=price&order=" + (random.nextBoolean() ? "asc" : "desc") : "";
+                yield "/search?ownership=" + ownership + "&propertyType=" + types[random.nextInt(types.length)]
+                        + "&page=" + page + "&size=20" + sort;
+            }
+            case KEYWORD -> "/search/keyword?keyword=" + encode(KEYWORDS[random.nextInt(KEYWORDS.length)]) + "&size=20";
+            case FILTER -> {
+                boolean sale = ownership.equals("sale");
+                long minPrice = sale ? 50_000L * (1 + random.nextInt(10)) : 200L * (1 + random.nextInt(10));
+                String rooms = random.nextBoolean() ? "&minRoomCount=" + (1 + random.nextInt(3)) : "";
+                yield "/filter?ownership=" + ownership + "&minPrice=" + minPrice + "&maxPrice=" + minPrice * 2
+                        + "&minArea=" + (40 + random.nextInt(80)) + rooms + "&size=20";
+            }
+            case STATS -> "/stats?ownership=" + ownership;
+            case GET -> {
+                Category category = Category.values()[random.nextInt(Category.values().length)];
+                int count = Math.max(1, counts[category.ordinal()]);
+                yield "/" + category.getOwnership() + "-" + category.getPropertyType() + "-" + random.nextInt(count);
+            }
+            default -> throw new IllegalArgumentException(operation.name());
+        };
+    }
+
+    private boolean create(SplittableRandom random) throws IOException, InterruptedException {
+        Category category = Category.values()[random.nextInt(Category.values().length)];
+        String body = objectMapper.writeValueAsString(
+                DatasetGenerator.listing(category, 1_000_000_000L + createdCount.incrementAndGet(), random));
+        HttpRequest request = HttpRequest.newBuilder(URI.create(base + createPath(category)))
+                .timeout(Duration.ofSeconds(60))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() >= 400) return false;
+        created.add(category.getOwnership() + "/" + category.getPropertyType() + "/"
+                + objectMapper.readTree(response.body()).path("id").asText());
+        return true;
+    }
+
+    // Deletes a listing this run created, or a seeded one when there is none left
+    private boolean delete(SplittableRandom random) throws IOException, InterruptedException {
+        String path = created.poll();
+        if (path == null) {
+            Category category = Category.values()[random.nextInt(Category.values().length)];
+            int count = Math.max(1, counts[category.ordinal()]);
+            path = category.getOwnership() + "/" + category.getPropertyType() + "/"
+                    + category.getOwnership() + "-" + category.getPropertyType() + "-" + random.nextInt(count);
+        }
+        HttpRequest request = HttpRequest.newBuilder(URI.create(base + "/" + path))
+                .timeout(Duration.ofSeconds(60))
+                .DELETE()
+                .build();
+        int status = client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+        return status < 400 || status == 404;
+    }
+
+    private HttpRequest get(String path) {
+        return HttpRequest.newBuilder(URI.create(base + path)).timeout(Duration.ofSeconds(60)).GET().build();
+    }
+
+    // "/sale/land", "/sale/commercial/office", "/rent/residential/apartment", ...
+    private static String createPath(Category category) {
+        String group = switch (category.getPropertyType()) {
+            case "office", "shop" -> "/commercial";
+            case "villa", "apartment" -> "/residential";
+            default -> "";
+        };
+        return "/" + category.getOwnership() + group + "/" + category.getPropertyType();
+    }
+
+    private static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8);
+    }
+
+    private void report(Recorder[] recorders, double rate, long measureFrom) {
+        Map<Operation, Samples> latency = new EnumMap<>(Operation.class);
+        Samples all = new Samples(), service = new Samples();
+        long errors = 0, last = measureFrom;
+        for (Recorder recorder : recorders) {
+            recorder.latency.forEach((operation, samples) -> latency.computeIfAbsent(operation, o -> new Samples()).addAll(samples));
+            recorder.latency.values().forEach(all::addAll);
+            service.addAll(recorder.service);
+            errors += recorder.errors;
+            last = Math.max(last, recorder.last);
+        }
+        // Requests scheduled in the measured period over the time it took to answer them
+        double achieved = all.size / ((last - measureFrom) / 1e9);
+        System.out.printf("target=%.0f/s achieved=%.0f/s requests=%d errors=%d%n", rate, achieved, all.size, errors);
+        if (achieved < rate * 0.95) {
+            System.out.println("The server did not keep up with the target rate; latencies include the queue that built up");
+        }
+        System.out.printf("%-10s %9s %9s %9s %9s %9s %9s   (ms, from the scheduled send)%n",
+                "operation", "count", "p50", "p90", "p99", "p99.9", "max");
+        latency.forEach((operation, samples) -> samples.print(operation.name().toLowerCase()));
+        all.print("all");
+        service.print("service");
+    }
+
+    // Samples of one connection; only its own thread writes to it
+    private static final class Recorder {
+        final Map<Operation, Samples> latency = new EnumMap<>(Operation.class);
+        final Samples service = new Samples();
+        long errors;
+        long last;
+
+        void record(Operation operation, long latencyNanos, long serviceNanos, boolean ok) {
+            latency.computeIfAbsent(operation, o -> new Samples()).add(latencyNanos);
+            service.add(serviceNanos);
+            if (!ok) errors++;
+        }
+    }
+
+    private static final class Samples {
+        long[] values = new long[1024];
+        int size;
+
+        void add(long value) {
+            if (size == values.length) values = Arrays.copyOf(values, size * 2);
+            values[size++] = value;
+        }
+
+        void addAll(Samples other) {
+            if (size + other.size > values.length) values = Arrays.copyOf(values, Math.max(size + other.size, size * 2));
+            System.arraycopy(other.values, 0, values, size, other.size);
+            size += other.size;
+        }
+
+        void print(String label) {
+            long[] sorted = Arrays.copyOf(values, size);
+            Arrays.sort(sorted);
+            System.out.printf("%-10s %9d %9.2f %9.2f %9.2f %9.2f %9.2f%n", label, size,
+                    ms(sorted, 0.50), ms(sorted, 0.90), ms(sorted, 0.99), ms(sorted, 0.999), size == 0 ? 0 : sorted[size - 1] / 1e6);
+        }
+
+        private static double ms(long[] sorted, double quantile) {
+            if (sorted.length == 0) return 0;
+            return sorted[Math.min(sorted.length - 1, (int) Math.ceil(quantile * sorted.length) - 1)] / 1e6;
+        }
+    }
+
+    private static void delete(Path dir) {
+        try (Stream<Path> files = Files.walk(dir)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(file);
+            }
+        } catch (IOException e) {
+            // Left for the OS to clean up with the rest of the temporary directory
+        }
+    }
+}
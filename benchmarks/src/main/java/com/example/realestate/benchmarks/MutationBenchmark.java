@@ -0,0 +1,139 @@
+package com.example.realestate.benchmarks;
+
+import com.example.realestate.model.Category;
+import com.example.realestate.model.Listing;
+import com.example.realestate.model.RealEstateModels.*;
+import com.example.realestate.service.RealEstateService;
+import io.micrometer.core.instrument.Timer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.ThreadParams;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Creating and deleting a listing through {@link RealEstateService}: validation, the log append,
+ * the wait for durability and the index update, twice per operation. The dataset keeps its size.
+ * The eight-thread variants show how many writers one group commit absorbs: all of them on the lock
+ * stripe of one category, or each on a category of its own. The 64-thread variant spreads 64 writers
+ * over the categories. After every iteration the number of fsyncs per committed mutation is printed,
+ * from the {@code realestate.wal.sync} count.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+public class MutationBenchmark {
+
+    @Param({"100000"})
+    public int listings;
+
+    @Param({"always", "batch", "os-buffered"})
+    public String durability;
+
+    private ServiceStack stack;
+    private RealEstateService service;
+    private Timer syncs;
+    private final LongAdder mutations = new LongAdder();
+    private long syncsBefore;
+
+    @State(Scope.Thread)
+    public static class Writer {
+        final SplittableRandom random = new SplittableRandom();
+        int created;
+        // The category of this thread in the spread variants
+        Category category;
+
+        @Setup(Level.Trial)
+        public void setUp(ThreadParams threads) {
+            category = Category.values()[threads.getThreadIndex() % Category.values().length];
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        stack = ServiceStack.start(DatasetGenerator.generate(listings, DatasetGenerator.SEED), durability, "json", 1);
+        service = stack.service;
+        syncs = stack.meterRegistry.get("realestate.wal.sync").timer();
+    }
+
+    @Setup(Level.Iteration)
+    public void countFrom() {
+        syncsBefore = syncs.count();
+        mutations.reset();
+    }
+
+    @TearDown(Level.Iteration)
+    public void reportSyncs() {
+        long synced = syncs.count() - syncsBefore;
+        long committed = mutations.sum();
+        System.out.printf("%d fsyncs for %d mutations (%.3f per mutation)%n", synced, committed,
+                committed == 0 ? 0.0 : (double) synced / committed);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        stack.close();
+    }
+
+    @Benchmark
+    public boolean insertAndDelete(Writer writer) {
+        return cycle(writer, Category.RENT_APARTMENT);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public boolean insertAndDeleteConcurrent(Writer writer) {
+        return cycle(writer, Category.RENT_APARTMENT);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public boolean insertAndDeleteSpread(Writer writer) {
+        return cycle(writer, writer.category);
+    }
+
+    @Benchmark
+    @Threads(64)
+    public boolean insertAndDelete64(Writer writer) {
+        return cycle(writer, writer.category);
+    }
+
+    private boolean cycle(Writer writer, Category category) {
+        String id = add(category, DatasetGenerator.listing(category, writer.created++, writer.random)).getId();
+        boolean deleted = service.delete(category.getOwnership(), category.getPropertyType(), id);
+        mutations.add(deleted ? 2 : 1);
+        return deleted;
+    }
+
+    private Listing add(Category category, Listing item) {
+        return switch (category) {
+            case SALE_LAND -> service.addLandSale((LandSale) item);
+            case SALE_OFFICE -> service.addOfficeSale((OfficeSale) item);
+            case SALE_SHOP -> service.addShopSale((ShopSale) item);
+            case SALE_VILLA -> service.addVillaSale((VillaSale) item);
+            case SALE_APARTMENT -> service.addApartmentSale((ApartmentSale) item);
+            case RENT_LAND -> service.addLandRent((LandRent) item);
+            case RENT_OFFICE -> service.addOfficeRent((OfficeRent) item);
+            case RENT_SHOP -> service.addShopRent((ShopRent) item);
+            case RENT_VILLA -> service.addVillaRent((VillaRent) item);
+            case RENT_APARTMENT -> service.addApartmentRent((ApartmentRent) item);
+        };
+    }
+}
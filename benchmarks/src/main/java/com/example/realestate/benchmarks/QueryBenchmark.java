@@ -0,0 +1,116 @@
+package com.example.realestate.benchmarks;
+
+import com.example.realestate.index.Page;
+import com.example.realestate.model.Category;
+import com.example.realestate.model.Listing;
+import com.example.realestate.model.RealEstateModels.RealEstate;
+import com.example.realestate.service.RealEstateService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The read paths of {@link RealEstateService}: paged search, sorted search, keyword search, filter,
+ * radius filter and stats, on datasets of 1k, 100k and 1M listings.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+public class QueryBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    public int listings;
+
+    // 1 runs on the calling thread; 0 splits large scans over one thread per core
+    @Param({"1"})
+    public int parallelism;
+
+    private ServiceStack stack;
+    private RealEstateService service;
+    private String rareKeyword;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        RealEstate data = DatasetGenerator.generate(listings, DatasetGenerator.SEED);
+        List<Listing> apartments = Category.RENT_APARTMENT.listOf(data);
+        rareKeyword = apartments.get(apartments.size() / 2).getData().getEmail();
+        stack = ServiceStack.start(data, "os-buffered", "json", parallelism);
+        service = stack.service;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        stack.close();
+    }
+
+    @Benchmark
+    public Page searchFirstPage() {
+        return service.search("rent", "apartment", null, null, 0, 20, null);
+    }
+
+    // Page 50 of the sale listings: 1,000 matches passed over before the page starts
+    @Benchmark
+    public Page searchDeepPage() {
+        return service.search("sale", null, null, null, 50, 20, null);
+    }
+
+    @Benchmark
+    public Page searchSortedByPrice() {
+        return service.search("rent", null, "price", "asc", 0, 20, null);
+    }
+
+    // About one listing in twenty, so the first page fills quickly
+    @Benchmark
+    public Page keywordCommon() {
+        return service.searchByKeyword("shiraz", null, null, 0, 20, null);
+    }
+
+    // The email of one listing, so every candidate of every category is checked
+    @Benchmark
+    public Page keywordRare() {
+        return service.searchByKeyword(rareKeyword, null, null, 0, 20, null);
+    }
+
+    // A narrow price band that the planner answers from the price index
+    @Benchmark
+    public Page filterIndexed() {
+        return service.filter("sale", null, 100_000.0, 101_000.0, null, null, null, null, null, null,
+                null, null, null, null, null, null, null, null, null, null, null, null, null, 0, 20, null, null);
+    }
+
+    // Rare combination of two wide bounds, so the columns are scanned to the end
+    @Benchmark
+    public Page filterScan() {
+        return service.filter("rent", null, null, 5_000.0, 900.0, null, null, null, null, null,
+                null, null, null, null, null, null, null, null, null, null, null, null, null, 0, 20, null, null);
+    }
+
+    // Sales within 2 km of central Shiraz; the grid hands over the rows of a few dozen cells
+    @Benchmark
+    public Page filterRadius() {
+        return service.filter("sale", null, null, null, null, null, null, null, null, null, null, null, null, null,
+                29.6100, 52.5300, 2.0, null, null, null, null, null, null, 0, 20, null, null);
+    }
+
+    @Benchmark
+    public Map<String, Object> stats() {
+        return service.stats("sale", null);
+    }
+}
@@ -0,0 +1,73 @@
+package com.example.realestate.benchmarks;
+
+import com.example.realestate.index.IndexManager;
+import com.example.realestate.model.RealEstateModels.RealEstate;
+import com.example.realestate.repository.FileBackedRepository;
+import com.example.realestate.service.QueryCache;
+import com.example.realestate.service.RealEstateService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+/**
+ * The repository, the indexes and the service wired by hand on a temporary data directory, the way
+ * Spring wires them in the server. The query cache is off, so every call does the work it measures,
+ * and compaction only runs when a benchmark asks for it. Metrics are recorded into an in-memory
+ * registry, so their cost is part of every measurement, as it is in the server.
+ */
+final class ServiceStack implements AutoCloseable {
+    final Path dir;
+    final MeterRegistry meterRegistry;
+    final FileBackedRepository repository;
+    final IndexManager indexManager;
+    final RealEstateService service;
+
+    private ServiceStack(Path dir, MeterRegistry meterRegistry, FileBackedRepository repository, IndexManager indexManager,
+                         RealEstateService service) {
+        this.dir = dir;
+        this.meterRegistry = meterRegistry;
+        this.repository = repository;
+        this.indexManager = indexManager;
+        this.service = service;
+    }
+
+    /**
+     * @param durability     {@code realestate.persistence.durability}
+     * @param snapshotFormat {@code realestate.snapshot.format}
+     * @param parallelism    {@code realestate.index.parallelism}; 1 runs every query on the calling thread
+     */
+    static ServiceStack start(RealEstate data, String durability, String snapshotFormat, int parallelism) throws Exception {
+        Path dir = Files.createTempDirectory("realestate-bench");
+        // Seeded the way a server starts on existing data: a binary store imports the JSON file and
+        // writes its first snapshot
+        new ObjectMapper().writeValue(dir.resolve("realestate.json").toFile(), data);
+        MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        FileBackedRepository repository = new FileBackedRepository(dir.toString(), Integer.MAX_VALUE, 86_400_000L,
+                durability, 5, 1024, snapshotFormat, 1, meterRegistry);
+        repository.afterPropertiesSet();
+        IndexManager indexManager = new IndexManager(repository, false, parallelism, 200_000, meterRegistry);
+        indexManager.afterPropertiesSet();
+        RealEstateService service = new RealEstateService(repository, indexManager,
+                new QueryCache(repository, 0, 0, 0, meterRegistry), new ObjectMapper());
+        return new ServiceStack(dir, meterRegistry, repository, indexManager, service);
+    }
+
+    @Override
+    public void close() throws Exception {
+        indexManager.destroy();
+        repository.destroy();
+        try (Stream<Path> files = Files.walk(dir)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(file);
+            }
+        } catch (IOException e) {
+            // Left for the OS to clean up with the rest of the temporary directory
+        }
+    }
+}
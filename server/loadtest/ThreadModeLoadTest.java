@@ -0,0 +1,116 @@
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Closed-loop load against a running server: every connection is a virtual thread that sends its
+ * next request as soon as the previous one is answered, mixing searches, filters and creates.
+ * Prints throughput and latency percentiles of the measured period.
+ * <p>
+ * Run with Java 21 as a source file: {@code java ThreadModeLoadTest.java <baseUrl> <connections>
+ * <seconds> [writeShare]}. {@code compare-threads.sh} runs it against both request thread modes.
+ */
+public class ThreadModeLoadTest {
+    private static final String API = "/api/v1/real-estate";
+    private static final int WARMUP_SECONDS = 5;
+
+    public static void main(String[] args) throws Exception {
+        String base = args[0];
+        int connections = Integer.parseInt(args[1]);
+        int seconds = Integer.parseInt(args[2]);
+        double writeShare = args.length > 3 ? Double.parseDouble(args[3]) : 0.2;
+
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(30))
+                .build();
+        long warmupEnd = System.nanoTime() + WARMUP_SECONDS * 1_000_000_000L;
+        long end = warmupEnd + seconds * 1_000_000_000L;
+        AtomicLong errors = new AtomicLong();
+        List<long[]> latencies = new ArrayList<>();
+        int[] counts = new int[connections];
+        CountDownLatch done = new CountDownLatch(connections);
+
+        for (int c = 0; c < connections; c++) {
+            long[] own = new long[1 << 16];
+            latencies.add(own);
+            int connection = c;
+            Thread.ofVirtual().start(() -> {
+                SplittableRandom random = new SplittableRandom(connection);
+                long[] samples = own;
+                int n = 0;
+                try {
+                    while (true) {
+                        long started = System.nanoTime();
+                        if (started >= end) break;
+                        HttpRequest request = random.nextDouble() < writeShare ? create(base, random) : read(base, random);
+                        try {
+                            int status = client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+                            if (status >= 400) errors.incrementAndGet();
+                        } catch (Exception e) {
+                            errors.incrementAndGet();
+                        }
+                        long finished = System.nanoTime();
+                        if (started >= warmupEnd && finished <= end) {
+                            if (n == samples.length) samples = Arrays.copyOf(samples, n * 2);
+                            samples[n++] = finished - started;
+                        }
+                    }
+                } finally {
+                    latencies.set(connection, samples);
+                    counts[connection] = n;
+                    done.countDown();
+                }
+            });
+        }
+        done.await();
+
+        int total = 0;
+        for (int count : counts) total += count;
+        long[] all = new long[total];
+        int at = 0;
+        for (int c = 0; c < connections; c++) {
+            System.arraycopy(latencies.get(c), 0, all, at, counts[c]);
+            at += counts[c];
+        }
+        Arrays.sort(all);
+        System.out.printf("connections=%d requests=%d errors=%d throughput=%.0f/s p50=%.1fms p90=%.1fms p99=%.1fms p99.9=%.1fms max=%.1fms%n",
+                connections, total, errors.get(), total / (double) seconds,
+                ms(all, 0.50), ms(all, 0.90), ms(all, 0.99), ms(all, 0.999), total == 0 ? 0 : all[total - 1] / 1e6);
+    }
+
+    private static double ms(long[] sorted, double quantile) {
+        if (sorted.length == 0) return 0;
+        return sorted[Math.min(sorted.length - 1, (int) Math.ceil(quantile * sorted.length) - 1)] / 1e6;
+    }
+
+    private static HttpRequest read(String base, SplittableRandom random) {
+        String path = switch (random.nextInt(3)) {
+            case 0 -> API + "/search?ownership=rent&propertyType=apartment&size=10&page=" + random.nextInt(50);
+            case 1 -> API + "/filter?ownership=sale&minPrice=" + random.nextInt(100_000) + "&size=10";
+            default -> API + "/search/keyword?keyword=street+" + random.nextInt(1000) + "&size=10";
+        };
+        return HttpRequest.newBuilder(URI.create(base + path)).timeout(Duration.ofSeconds(60)).GET().build();
+    }
+
+    private static HttpRequest create(String base, SplittableRandom random) {
+        String body = """
+                {"floorCount": %d, "roomCount": %d, "data": {"address": "%d Load Street, Tehran", "email": "load%d@mail.com",
+                 "area": %d, "rentPrice": %d, "mortgagePrice": %d, "ownerFullName": "Load Test"}}"""
+                .formatted(1 + random.nextInt(20), 1 + random.nextInt(5), random.nextInt(1000), random.nextInt(100_000),
+                        40 + random.nextInt(200), 500 + random.nextInt(5000), 10_000 + random.nextInt(90_000));
+        return HttpRequest.newBuilder(URI.create(base + API + "/rent/residential/apartment"))
+                .timeout(Duration.ofSeconds(60))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+    }
+}
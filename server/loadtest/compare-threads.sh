@@ -0,0 +1,29 @@
+#!/bin/sh
+# Runs ThreadModeLoadTest against the server with platform request threads and with virtual ones.
+# Needs Java 21 on the PATH or in JAVA_HOME and a built jar (mvn -DskipTests package).
+#
+# usage: compare-threads.sh [connections] [seconds] [writeShare] [dataset.json]
+set -e
+cd "$(dirname "$0")/.."
+CONNECTIONS=${1:-1000}
+SECONDS_PER_RUN=${2:-30}
+WRITE_SHARE=${3:-0.2}
+DATASET=${4:-../data/realestate.json}
+JAVA=${JAVA_HOME:+$JAVA_HOME/bin/}java
+PORT=9393
+JAR=$(ls target/*-exec.jar | head -n 1)
+
+for virtual in false true; do
+    DATA=$(mktemp -d)
+    cp "$DATASET" "$DATA/realestate.json"
+    "$JAVA" -jar "$JAR" --server.port=$PORT --realestate.data-dir="$DATA" \
+        --spring.threads.virtual.enabled=$virtual --realestate.query-cache.max-entries=0 \
+        --logging.level.root=WARN > "$DATA/server.log" 2>&1 &
+    SERVER=$!
+    until curl -s -o /dev/null "http://localhost:$PORT/api/"; do sleep 0.5; done
+    printf 'virtual=%s ' $virtual
+    "$JAVA" loadtest/ThreadModeLoadTest.java "http://localhost:$PORT" "$CONNECTIONS" "$SECONDS_PER_RUN" "$WRITE_SHARE"
+    kill $SERVER
+    wait $SERVER 2>/dev/null || true
+    rm -rf "$DATA"
+done
@@ -0,0 +1,43 @@
+package com.example.realestate.controller;
+
+import com.example.realestate.service.FlightRecording;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * {@code GET /actuator/flightrecording}: the continuous flight recording as a {@code .jfr} file, for
+ * JDK Mission Control or {@code jfr print}. Like the other actuator endpoints it is not proxied.
+ */
+@Component
+@Endpoint(id = "flightrecording")
+public class FlightRecordingEndpoint {
+
+    private final FlightRecording recording;
+
+    public FlightRecordingEndpoint(FlightRecording recording) {
+        this.recording = recording;
+    }
+
+    // 404 when no recording is running
+    @ReadOperation(produces = "application/octet-stream")
+    public Resource dump() throws IOException {
+        Path file = recording.dump();
+        if (file == null) return null;
+        // The dump is removed once it has been sent
+        return new FileSystemResource(file) {
+            @Override
+            public InputStream getInputStream() throws IOException {
+                return Files.newInputStream(file, StandardOpenOption.DELETE_ON_CLOSE);
+            }
+        };
+    }
+}
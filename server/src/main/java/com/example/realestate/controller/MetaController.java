@@ -1,10 +1,13 @@
 package com.example.realestate.controller;
 
-import com.example.realestate.model.RealEstateModels.RealEstate;
-import com.example.realestate.repository.FileBackedRepository;
+import com.example.realestate.index.IndexManager;
+import com.example.realestate.model.Category;
+import com.example.realestate.service.QueryCache;
+import com.example.realestate.service.RealEstateService;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.LinkedHashMap;
 import java.util.List;
@@ -14,21 +17,24 @@ import java.util.Map;
 @RequestMapping("/api")
 public class MetaController {
 
-    private final FileBackedRepository repository;
+    private final IndexManager indexManager;
+    private final RealEstateService service;
+    private final QueryCache queryCache;
 
-    public MetaController(FileBackedRepository repository) {
-        this.repository = repository;
+    public MetaController(IndexManager indexManager, RealEstateService service, QueryCache queryCache) {
+        this.indexManager = indexManager;
+        this.service = service;
+        this.queryCache = queryCache;
     }
 
     @GetMapping({"/", ""})
-    public Map<String, Object> apiIndex() {
+    public Map<String, Object> apiIndex(WebRequest request) {
+        // The statistics only change with the data
+        if (request.checkNotModified(service.dataVersion())) return null;
         Map<String, Object> res = new LinkedHashMap<>();
         
-        // Get current data from repository
-        RealEstate data = repository.get();
-        
         // Calculate statistics
-        Map<String, Object> statistics = calculateStatistics(data);
+        Map<String, Object> statistics = calculateStatistics();
         
         // Specific output order: message, developedBy, officialName, studentNumber, description, routes, statistics
         res.put("message", "Welcome to the Real Estate API");
@@ -39,13 +45,21 @@ public class MetaController {
         res.put("routes", List.of(
                 // Read
                 "/api/v1/real-estate",
+                "/api/v1/real-estate/{id}",
+                "POST /api/v1/real-estate/lookup",
                 
                 // Search & Filter
-                "/api/v1/real-estate/search?ownership={sale|rent}&propertyType={land|office|shop|villa|apartment}&page={n}&size={m}",
-                "/api/v1/real-estate/search/keyword?keyword={text}&page={n}&size={m}",
-                "/api/v1/real-estate/filter?ownership={sale|rent}&propertyType={land|office|shop|villa|apartment}&minPrice={n}&maxPrice={n}&minArea={n}&maxArea={n}&minRoomCount={n}&maxRoomCount={n}&minYardArea={n}&maxYardArea={n}&minFloorCount={n}&maxFloorCount={n}&minMortgagePrice={n}&maxMortgagePrice={n}&page={n}&size={m}",
+                "/api/v1/real-estate/search?ownership={sale|rent}&propertyType={land|office|shop|villa|apartment}&sort={price|area|pricePerSqm|roomCount}&order={asc|desc}&page={n}&size={m}&cursor={c}",
+                "/api/v1/real-estate/search/keyword?keyword={text}&sort={price|area|pricePerSqm|roomCount}&order={asc|desc}&page={n}&size={m}&cursor={c}",
+                "/api/v1/real-estate/filter?ownership={sale|rent}&propertyType={land|office|shop|villa|apartment}&minPrice={n}&maxPrice={n}&minArea={n}&maxArea={n}&minRoomCount={n}&maxRoomCount={n}&minYardArea={n}&maxYardArea={n}&minFloorCount={n}&maxFloorCount={n}&minMortgagePrice={n}&maxMortgagePrice={n}&latitude={n}&longitude={n}&radiusKm={n}&minLatitude={n}&maxLatitude={n}&minLongitude={n}&maxLongitude={n}&sort={price|area|pricePerSqm|roomCount}&order={asc|desc}&page={n}&size={m}&cursor={c}&explain={true|false}",
                 "/api/v1/real-estate/stats?ownership={sale|rent}&propertyType={land|office|shop|villa|apartment}",
                 
+                // Streamed as NDJSON (Accept: application/x-ndjson), resumable with cursor
+                "/api/v1/real-estate (application/x-ndjson)",
+                "/api/v1/real-estate/search?ownership={sale|rent}&propertyType={land|office|shop|villa|apartment}&cursor={c} (application/x-ndjson)",
+                "/api/v1/real-estate/search/keyword?keyword={text}&cursor={c} (application/x-ndjson)",
+                "/api/v1/real-estate/filter?ownership={sale|rent}&...&cursor={c} (application/x-ndjson)",
+                
                 // Create (Sale)
                 "POST /api/v1/real-estate/sale/land",
                 "POST /api/v1/real-estate/sale/commercial/office",
@@ -60,11 +74,15 @@ public class MetaController {
                 "POST /api/v1/real-estate/rent/residential/villa",
                 "POST /api/v1/real-estate/rent/residential/apartment",
                 
+                // Bulk import of listings of any category, as JSON or NDJSON
+                "POST /api/v1/real-estate/import",
+                
                 // Delete
                 "DELETE /api/v1/real-estate/{ownership}/{propertyType}/{id}",
                 
                 // API Info
-                "GET /api/"
+                "GET /api/",
+                "GET /api/cache"
         ));
         res.put("statistics", statistics);
         // Optional extra
@@ -72,34 +90,31 @@ public class MetaController {
         return res;
     }
 
-    private Map<String, Object> calculateStatistics(RealEstate data) {
+    // Query result cache counters; not part of the index page, whose ETag only follows the data
+    @GetMapping("/cache")
+    public Map<String, Object> cache() {
+        return queryCache.statistics();
+    }
+
+    private Map<String, Object> calculateStatistics() {
         Map<String, Object> stats = new LinkedHashMap<>();
         
-        // Sale statistics
+        // Counts are kept by the indexes on every create/delete, so nothing is recounted here
         Map<String, Object> saleStats = new LinkedHashMap<>();
-        saleStats.put("land", data.getSale().getLand().size());
-        saleStats.put("office", data.getSale().getCommercial().getOffice().size());
-        saleStats.put("shop", data.getSale().getCommercial().getShop().size());
-        saleStats.put("villa", data.getSale().getResidential().getVilla().size());
-        saleStats.put("apartment", data.getSale().getResidential().getApartment().size());
-        saleStats.put("total", data.getSale().getLand().size() + 
-                           data.getSale().getCommercial().getOffice().size() + 
-                           data.getSale().getCommercial().getShop().size() + 
-                           data.getSale().getResidential().getVilla().size() + 
-                           data.getSale().getResidential().getApartment().size());
-        
-        // Rent statistics
         Map<String, Object> rentStats = new LinkedHashMap<>();
-        rentStats.put("land", data.getRent().getLand().size());
-        rentStats.put("office", data.getRent().getCommercial().getOffice().size());
-        rentStats.put("shop", data.getRent().getCommercial().getShop().size());
-        rentStats.put("villa", data.getRent().getResidential().getVilla().size());
-        rentStats.put("apartment", data.getRent().getResidential().getApartment().size());
-        rentStats.put("total", data.getRent().getLand().size() + 
-                           data.getRent().getCommercial().getOffice().size() + 
-                           data.getRent().getCommercial().getShop().size() + 
-                           data.getRent().getResidential().getVilla().size() + 
-                           data.getRent().getResidential().getApartment().size());
+        int saleTotal = 0, rentTotal = 0;
+        for (Category category : Category.values()) {
+            int count = indexManager.count(category);
+            if (category.isSale()) {
+                saleStats.put(category.getPropertyType(), count);
+                saleTotal += count;
+            } else {
+                rentStats.put(category.getPropertyType(), count);
+                rentTotal += count;
+            }
+        }
+        saleStats.put("total", saleTotal);
+        rentStats.put("total", rentTotal);
         
         // Overall statistics
         Map<String, Object> overallStats = new LinkedHashMap<>();
@@ -0,0 +1,110 @@
+package com.example.realestate.controller;
+
+import com.example.realestate.index.Page;
+import com.example.realestate.model.Category;
+import com.example.realestate.model.Listing;
+import com.example.realestate.repository.RealEstateSnapshot;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Writes listings as newline-delimited JSON, one listing per line, straight to the response.
+ * <p>
+ * Only a bounded number of listings is held at a time and the first lines are sent before the rest
+ * has been read, so memory and time to first byte do not grow with the size of the result.
+ */
+@Component
+public class NdjsonWriter {
+    // Listings fetched per query page, and written between two flushes
+    static final int CHUNK_SIZE = 1000;
+
+    private final ObjectMapper mapper;
+    private final ObjectWriter writer;
+
+    public NdjsonWriter(ObjectMapper mapper) {
+        this.mapper = mapper;
+        this.writer = mapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+    }
+
+    /**
+     * Every listing of the snapshot as {@code {"ownership", "propertyType", "item"}}, in category order.
+     * The snapshot is immutable, so the stream is consistent without holding any lock.
+     */
+    public ResponseEntity<StreamingResponseBody> snapshot(RealEstateSnapshot snapshot) {
+        return respond(out -> {
+            JsonGenerator gen = generator(out);
+            int pending = 0;
+            for (Category category : Category.values()) {
+                for (Listing item : snapshot.listOf(category)) {
+                    gen.writeStartObject();
+                    gen.writeStringField("ownership", category.getOwnership());
+                    gen.writeStringField("propertyType", category.getPropertyType());
+                    gen.writeFieldName("item");
+                    writer.writeValue(gen, item);
+                    gen.writeEndObject();
+                    gen.writeRaw('\n');
+                    if (++pending == CHUNK_SIZE) {
+                        gen.flush();
+                        pending = 0;
+                    }
+                }
+            }
+            gen.close();
+        });
+    }
+
+    /**
+     * Every result of a paged query, one page of {@link #CHUNK_SIZE} after the other. The first page is
+     * fetched right away, so that an invalid request still fails with a normal error response.
+     *
+     * @param fetch returns the page after the given cursor, or the first page for null
+     */
+    public ResponseEntity<StreamingResponseBody> pages(String cursor, Function<String, Page> fetch) {
+        Page first = fetch.apply(cursor);
+        return respond(out -> {
+            JsonGenerator gen = generator(out);
+            Page page = first;
+            while (true) {
+                write(gen, page.items());
+                gen.flush();
+                if (page.nextCursor() == null) break;
+                page = fetch.apply(page.nextCursor());
+            }
+            gen.close();
+        });
+    }
+
+    private void write(JsonGenerator gen, List<Object> items) throws IOException {
+        for (Object item : items) {
+            writer.writeValue(gen, item);
+            gen.writeRaw('\n');
+        }
+    }
+
+    private JsonGenerator generator(OutputStream out) throws IOException {
+        JsonGenerator gen = mapper.getFactory().createGenerator(out, JsonEncoding.UTF8);
+        // Lines are separated by the newlines written above, not by Jackson's default space
+        gen.setRootValueSeparator(null);
+        return gen;
+    }
+
+    private static ResponseEntity<StreamingResponseBody> respond(StreamingResponseBody body) {
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                // Tells a proxying nginx to pass lines on as they come instead of buffering the response
+                .header("X-Accel-Buffering", "no")
+                .body(body);
+    }
+}
@@ -1,51 +1,97 @@
 package com.example.realestate.controller;
 
+import com.example.realestate.index.FilterPlan;
+import com.example.realestate.index.Page;
 import com.example.realestate.model.RealEstateModels.*;
 import com.example.realestate.service.RealEstateService;
 import jakarta.validation.Valid;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
 @RestController
 @RequestMapping("/api/v1/real-estate")
 public class RealEstateController {
+    private static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    private static final String TOTAL_COUNT_HEADER = "X-Total-Count";
+
     private final RealEstateService service;
+    private final NdjsonWriter ndjson;
 
-    public RealEstateController(RealEstateService service) {
+    public RealEstateController(RealEstateService service, NdjsonWriter ndjson) {
         this.service = service;
+        this.ndjson = ndjson;
     }
 
-    // View all data
+    // View all data; every read below answers If-None-Match with 304 before doing any work
     @GetMapping
-    public RealEstate getAll() {
+    public RealEstate getAll(WebRequest request) {
+        if (request.checkNotModified(service.dataVersion())) return null;
         return service.getAll();
     }
 
-    // Search by ownership and property type
+    // View all data, streamed one listing per line
+    @GetMapping(produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamAll() {
+        return ndjson.snapshot(service.snapshot());
+    }
+
+    // Search by ownership and property type; sort=price|area|pricePerSqm|roomCount with order=asc|desc
     @GetMapping("/search")
-    public List<Object> search(@RequestParam String ownership,
+    public ResponseEntity<List<Object>> search(@RequestParam String ownership,
                                @RequestParam(required = false) String propertyType,
+                               @RequestParam(required = false) String sort,
+                               @RequestParam(required = false) String order,
                                @RequestParam(required = false) Integer page,
-                               @RequestParam(required = false) Integer size) {
-        List<Object> results = service.search(ownership, propertyType);
-        return service.paginateList(results, page, size);
+                               @RequestParam(required = false) Integer size,
+                               @RequestParam(required = false) String cursor,
+                               WebRequest request) {
+        if (request.checkNotModified(service.dataVersion(ownership, propertyType))) return null;
+        Page results = service.search(ownership, propertyType, sort, order, page, size, cursor);
+        return withPageHeaders(results).body(results.items());
     }
 
     // Search by keyword across all properties
     @GetMapping("/search/keyword")
-    public List<Object> searchByKeyword(@RequestParam String keyword,
+    public ResponseEntity<List<Object>> searchByKeyword(@RequestParam String keyword,
+                                        @RequestParam(required = false) String sort,
+                                        @RequestParam(required = false) String order,
                                         @RequestParam(required = false) Integer page,
-                                        @RequestParam(required = false) Integer size) {
-        List<Object> results = service.searchByKeyword(keyword);
-        return service.paginateList(results, page, size);
+                                        @RequestParam(required = false) Integer size,
+                                        @RequestParam(required = false) String cursor,
+                                        WebRequest request) {
+        if (request.checkNotModified(service.dataVersion())) return null;
+        Page results = service.searchByKeyword(keyword, sort, order, page, size, cursor);
+        return withPageHeaders(results).body(results.items());
+    }
+
+    // Every search result, streamed one listing per line
+    @GetMapping(value = "/search", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamSearch(@RequestParam String ownership,
+                                                              @RequestParam(required = false) String propertyType,
+                                                              @RequestParam(required = false) String cursor) {
+        return ndjson.pages(cursor, next -> service.search(ownership, propertyType, null, null, null, NdjsonWriter.CHUNK_SIZE, next));
+    }
+
+    // Every keyword search result, streamed one listing per line
+    @GetMapping(value = "/search/keyword", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamSearchByKeyword(@RequestParam String keyword,
+                                                                       @RequestParam(required = false) String cursor) {
+        return ndjson.pages(cursor, next -> service.searchByKeyword(keyword, null, null, null, NdjsonWriter.CHUNK_SIZE, next));
     }
 
-    // Advanced filter search
+    // Advanced filter search; explain=true also reports how each category was answered
     @GetMapping("/filter")
-    public List<Object> filter(@RequestParam String ownership,
+    public ResponseEntity<Object> filter(@RequestParam String ownership,
                                @RequestParam(required = false) String propertyType,
                                @RequestParam(required = false) Double minPrice,
                                @RequestParam(required = false) Double maxPrice,
@@ -59,18 +105,88 @@ public class RealEstateController {
                                 @RequestParam(required = false) Integer maxFloorCount,
                                 @RequestParam(required = false) Double minMortgagePrice,
                                 @RequestParam(required = false) Double maxMortgagePrice,
+                               @RequestParam(required = false) Double latitude,
+                               @RequestParam(required = false) Double longitude,
+                               @RequestParam(required = false) Double radiusKm,
+                               @RequestParam(required = false) Double minLatitude,
+                               @RequestParam(required = false) Double maxLatitude,
+                               @RequestParam(required = false) Double minLongitude,
+                               @RequestParam(required = false) Double maxLongitude,
+                               @RequestParam(required = false) String sort,
+                               @RequestParam(required = false) String order,
                                @RequestParam(required = false) Integer page,
-                               @RequestParam(required = false) Integer size) {
-        List<Object> results = service.filter(ownership, propertyType, minPrice, maxPrice, minArea, maxArea, minRoomCount, maxRoomCount, minYardArea, maxYardArea, minFloorCount, maxFloorCount, minMortgagePrice, maxMortgagePrice);
-        return service.paginateList(results, page, size);
+                               @RequestParam(required = false) Integer size,
+                               @RequestParam(required = false) String cursor,
+                               @RequestParam(defaultValue = "false") boolean explain,
+                               WebRequest request) {
+        if (request.checkNotModified(service.dataVersion(ownership, propertyType))) return null;
+        List<FilterPlan> plan = explain ? new ArrayList<>() : null;
+        Page results = service.filter(ownership, propertyType, minPrice, maxPrice, minArea, maxArea, minRoomCount, maxRoomCount, minYardArea, maxYardArea, minFloorCount, maxFloorCount, minMortgagePrice, maxMortgagePrice, latitude, longitude, radiusKm, minLatitude, maxLatitude, minLongitude, maxLongitude, sort, order, page, size, cursor, plan);
+        if (!explain) return withPageHeaders(results).body(results.items());
+        Map<String, Object> res = new LinkedHashMap<>();
+        res.put("plan", plan);
+        res.put("total", results.total());
+        res.put("nextCursor", results.nextCursor());
+        res.put("results", results.items());
+        return withPageHeaders(results).body(res);
+    }
+
+    // The next page is fetched with ?cursor=<X-Next-Cursor>; the header is absent on the last page
+    private static ResponseEntity.BodyBuilder withPageHeaders(Page page) {
+        ResponseEntity.BodyBuilder builder = ResponseEntity.ok();
+        if (page.nextCursor() != null) builder.header(NEXT_CURSOR_HEADER, page.nextCursor());
+        if (page.total() != null) builder.header(TOTAL_COUNT_HEADER, String.valueOf(page.total()));
+        return builder;
+    }
+
+    // Every filter result, streamed one listing per line
+    @GetMapping(value = "/filter", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamFilter(@RequestParam String ownership,
+                               @RequestParam(required = false) String propertyType,
+                               @RequestParam(required = false) Double minPrice,
+                               @RequestParam(required = false) Double maxPrice,
+                               @RequestParam(required = false) Double minArea,
+                               @RequestParam(required = false) Double maxArea,
+                               @RequestParam(required = false) Integer minRoomCount,
+                               @RequestParam(required = false) Integer maxRoomCount,
+                               @RequestParam(required = false) Double minYardArea,
+                               @RequestParam(required = false) Double maxYardArea,
+                               @RequestParam(required = false) Integer minFloorCount,
+                               @RequestParam(required = false) Integer maxFloorCount,
+                               @RequestParam(required = false) Double minMortgagePrice,
+                               @RequestParam(required = false) Double maxMortgagePrice,
+                               @RequestParam(required = false) Double latitude,
+                               @RequestParam(required = false) Double longitude,
+                               @RequestParam(required = false) Double radiusKm,
+                               @RequestParam(required = false) Double minLatitude,
+                               @RequestParam(required = false) Double maxLatitude,
+                               @RequestParam(required = false) Double minLongitude,
+                               @RequestParam(required = false) Double maxLongitude,
+                               @RequestParam(required = false) String cursor) {
+        return ndjson.pages(cursor, next -> service.filter(ownership, propertyType, minPrice, maxPrice, minArea, maxArea, minRoomCount, maxRoomCount, minYardArea, maxYardArea, minFloorCount, maxFloorCount, minMortgagePrice, maxMortgagePrice, latitude, longitude, radiusKm, minLatitude, maxLatitude, minLongitude, maxLongitude, null, null, null, NdjsonWriter.CHUNK_SIZE, next, null));
     }
 
     @GetMapping("/stats")
     public Map<String, Object> stats(@RequestParam String ownership,
-                                     @RequestParam(required = false) String propertyType) {
+                                     @RequestParam(required = false) String propertyType,
+                                     WebRequest request) {
+        if (request.checkNotModified(service.dataVersion(ownership, propertyType))) return null;
         return service.stats(ownership, propertyType);
     }
 
+    // One listing by id, as {"ownership", "propertyType", "item"}
+    @GetMapping("/{id}")
+    public ResponseEntity<Map<String, Object>> getById(@PathVariable String id) {
+        Map<String, Object> found = service.findById(id);
+        return found == null ? ResponseEntity.notFound().build() : ResponseEntity.ok(found);
+    }
+
+    // Up to 1000 listings by id in one request; ids that do not exist are left out
+    @PostMapping("/lookup")
+    public List<Map<String, Object>> lookup(@RequestBody List<String> ids) {
+        return service.findByIds(ids);
+    }
+
     /* === Create === */
     @PostMapping("/sale/land")
     public LandSale createLandSale(@Valid @RequestBody LandSale req) { return service.addLandSale(req); }
@@ -102,6 +218,13 @@ public class RealEstateController {
     @PostMapping("/rent/residential/apartment")
     public ApartmentRent createApartmentRent(@Valid @RequestBody ApartmentRent req) { return service.addApartmentRent(req); }
 
+    /* === Bulk import === */
+    // A JSON array or NDJSON stream of {"ownership", "propertyType", "item"} records, as streamed by GET
+    @PostMapping(value = "/import", consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public Map<String, Object> importListings(InputStream body) throws IOException {
+        return service.importListings(body);
+    }
+
     /* === Delete === */
     @DeleteMapping("/{ownership}/{propertyType}/{id}")
     public ResponseEntity<Void> delete(@PathVariable String ownership,
@@ -0,0 +1,555 @@
+package com.example.realestate.index;
+
+import com.example.realestate.model.Attribute;
+import com.example.realestate.model.Category;
+import com.example.realestate.model.Listing;
+import com.example.realestate.model.ListingData;
+import com.example.realestate.model.SearchText;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Indexes of one category's listings.
+ * <p>
+ * Every listing gets a row number in list order. Rows are only appended; a deleted listing leaves an
+ * empty row behind, and the rows are renumbered once more than half of them are empty. Queries
+ * therefore return listings in the same order as the category list. Each row also carries an ordinal
+ * that, unlike the row number, survives renumbering; pages resume after an ordinal.
+ * <p>
+ * Besides the trigram index for keyword search, every numeric {@link Attribute} of the category is
+ * kept as a primitive column aligned with the rows, plus a sorted {@link RangeIndex}. A filter is
+ * answered from the range index with the fewest entries inside its bound when that bound is selective
+ * enough, and otherwise by running each bound over its column into a row bitmap.
+ * <p>
+ * Coordinates are kept as two more columns and in a {@link GeoGrid}. A geographic bound competes
+ * with the range indexes for producing the candidates, with the rows of the grid cells it overlaps as
+ * its estimate; whichever way the rows are found, each one is checked against the exact bound.
+ * <p>
+ * The minimum and maximum of every attribute are kept up to date as rows come and go, from a sorted
+ * count of every value, so adding or removing a row and reading the bounds are all logarithmic.
+ * <p>
+ * Only the repository's writer of the category changes the index, one batch at a time. Every batch
+ * ends in a {@link Version}, which the repository publishes together with the new category list and
+ * which queries read without locking. Versions share the writer's arrays: rows are only appended
+ * past the row count a version holds, and the live bitmap, the bounds and the range indexes are
+ * captured as they are. A deleted listing therefore stays in its row, with only its live bit cleared,
+ * until renumbering builds everything anew.
+ */
+final class CategoryIndex {
+    private static final int MIN_ROWS_TO_COMPACT = 1024;
+    // Visiting an index candidate costs about this many sequentially scanned rows
+    private static final int INDEX_COST = 4;
+    // Rows evaluated per step of a scan, so that a page can stop the scan early
+    static final int SCAN_BLOCK = 4096;
+    // What chooseIndex returns for a scan, and for candidates from the grid
+    private static final int SCAN = -1;
+    private static final int GEO = -2;
+
+    private final Category category;
+    private final StringBuilder scratch = new StringBuilder(256);
+    private final RangeKernel kernel;
+    private final RangeIndex[] ranges = new RangeIndex[Attribute.values().length];
+    private long generation;
+
+    private Listing[] rows = new Listing[64];
+    // Increasing with the row number and kept when rows are renumbered
+    private long[] ordinals = new long[64];
+    private long nextOrdinal;
+    // Attribute values per row, null for attributes the category does not have; NaN without data
+    private final double[][] columns = new double[Attribute.values().length][];
+    // Coordinates per row, NaN for listings without them
+    private double[] latitudes;
+    private double[] longitudes;
+    private GeoGrid grid;
+    private LiveRows live;
+    // Number of live rows with data holding each value of every attribute; the bounds are the first
+    // and last keys
+    private final Map<Attribute, TreeMap<Double, Integer>> valueCounts = new EnumMap<>(Attribute.class);
+    private int rowCount;
+    private int emptyRows;
+    private Map<String, Integer> rowById = new HashMap<>();
+    private TrigramIndex trigrams = new TrigramIndex();
+
+    CategoryIndex(Category category, RangeKernel kernel) {
+        this.category = category;
+        this.kernel = kernel;
+        resetColumns(rows.length);
+    }
+
+    /**
+     * Indexes the listings afresh with new ordinals.
+     *
+     * @param generation tells the ordinals of this rebuild apart from earlier ones
+     */
+    Version rebuild(List<Listing> items, long generation) {
+        this.generation = generation;
+        nextOrdinal = 0;
+        load(items.toArray(new Listing[0]), null, items.size());
+        return new Version(this);
+    }
+
+    Version apply(List<Listing> inserted, List<Listing> removed) {
+        for (Listing item : inserted) {
+            append(item, nextOrdinal++);
+        }
+        for (Listing item : removed) {
+            Integer row = rowById.remove(item.getId());
+            if (row != null) {
+                if (hasData(row)) countValues(row, -1);
+                live.clear(row);
+                emptyRows++;
+            }
+        }
+        if (emptyRows > rowCount / 2 && rowCount >= MIN_ROWS_TO_COMPACT) {
+            compact();
+        } else {
+            for (RangeIndex range : ranges) {
+                if (range != null) range.mergeIfNeeded();
+            }
+        }
+        return new Version(this);
+    }
+
+    /**
+     * The index of one version of the category list. Immutable, so any number of queries may read it
+     * concurrently, also while the writer builds the next version.
+     */
+    static final class Version {
+        private final Category category;
+        private final RangeKernel kernel;
+        private final long generation;
+        private final Listing[] rows;
+        private final long[] ordinals;
+        private final double[][] columns;
+        private final double[] latitudes;
+        private final double[] longitudes;
+        private final GeoGrid grid;
+        private final long[][] live;
+        private final RangeIndex.View[] ranges;
+        private final TrigramIndex.View trigrams;
+        private final double[] mins;
+        private final double[] maxs;
+        private final int rowCount;
+        private final int liveRows;
+
+        private Version(CategoryIndex index) {
+            this.category = index.category;
+            this.kernel = index.kernel;
+            this.generation = index.generation;
+            this.rows = index.rows;
+            this.ordinals = index.ordinals;
+            this.columns = index.columns.clone();
+            this.latitudes = index.latitudes;
+            this.longitudes = index.longitudes;
+            this.grid = index.grid;
+            this.live = index.live.freeze();
+            this.ranges = new RangeIndex.View[index.ranges.length];
+            for (int a = 0; a < ranges.length; a++) {
+                if (index.ranges[a] != null) ranges[a] = index.ranges[a].view();
+            }
+            this.trigrams = index.trigrams.view();
+            this.mins = new double[index.columns.length];
+            this.maxs = new double[index.columns.length];
+            Arrays.fill(mins, Double.NaN);
+            Arrays.fill(maxs, Double.NaN);
+            index.valueCounts.forEach((attribute, counts) -> {
+                if (counts.isEmpty()) return;
+                mins[attribute.ordinal()] = counts.firstKey();
+                maxs[attribute.ordinal()] = counts.lastKey();
+            });
+            this.rowCount = index.rowCount;
+            this.liveRows = index.rowCount - index.emptyRows;
+        }
+
+        // Changes whenever the listings were indexed afresh and their ordinals started over
+        long generation() {
+            return generation;
+        }
+
+        // Number of listings in the category
+        int size() {
+            return liveRows;
+        }
+
+        /**
+         * Opens a keyword search for the listings after {@code after} whose searchable text contains
+         * {@code term}. Its units are the trigram candidates.
+         */
+        Scan keywordScan(String term, long after) {
+            return new KeywordScan(term, after);
+        }
+
+        /**
+         * Opens a filter for the listings after {@code after} satisfying all predicates and, unless it
+         * is null, the geographic bound. Predicates on attributes this category does not have are
+         * ignored. Its units are rows.
+         */
+        FilterScan filterScan(List<RangePredicate> predicates, GeoPredicate geo, long after) {
+            return new FilterScan(predicates, geo, after);
+        }
+
+        /**
+         * Number of listings whose searchable text contains {@code term}, or -1 when that would mean
+         * checking the text of every candidate.
+         */
+        long countKeyword(String term) {
+            if (term.length() != 3) return -1;
+            long count = 0;
+            for (int row : trigrams.candidates(term, rowCount)) {
+                if (isLive(row)) count++;
+            }
+            return count;
+        }
+
+        /**
+         * Number of listings satisfying all predicates and the geographic bound, or -1 when counting
+         * them would mean scanning the category.
+         */
+        long countFilter(List<RangePredicate> predicates, GeoPredicate geo) {
+            List<RangePredicate> applicable = applicable(predicates);
+            if (applicable.isEmpty() && geo == null) return liveRows;
+            int best = chooseIndex(applicable, geo, null);
+            if (best == SCAN) return -1;
+            BitSet hits = candidates(applicable, geo, best);
+            long count = 0;
+            for (int row = hits.nextSetBit(0); row >= 0; row = hits.nextSetBit(row + 1)) {
+                if (isLive(row) && matches(row, applicable, geo, best)) count++;
+            }
+            return count;
+        }
+
+        /**
+         * Adds the bounds of the requested attributes over all listings that have data to
+         * {@code summary}. The bounds are maintained by every batch, so this does not depend on the
+         * number of listings.
+         */
+        void summarize(Set<Attribute> attributes, Summary summary) {
+            for (Attribute attribute : attributes) {
+                int a = attribute.ordinal();
+                if (!Double.isNaN(mins[a])) summary.add(attribute, mins[a], maxs[a]);
+            }
+        }
+
+        private boolean isLive(int row) {
+            return LiveRows.get(live, row);
+        }
+
+        private List<RangePredicate> applicable(List<RangePredicate> predicates) {
+            List<RangePredicate> applicable = new ArrayList<>(predicates.size());
+            for (RangePredicate p : predicates) {
+                if (p.attribute().appliesTo(category)) applicable.add(p);
+            }
+            return applicable;
+        }
+
+        // Position of the predicate whose range index should produce the candidates, GEO for the grid, or SCAN
+        private int chooseIndex(List<RangePredicate> applicable, GeoPredicate geo, Map<String, Long> estimates) {
+            int best = SCAN;
+            long bestEstimate = Long.MAX_VALUE;
+            if (geo != null) {
+                best = GEO;
+                bestEstimate = grid.count(geo, rowCount);
+                if (estimates != null) estimates.put("geo", bestEstimate);
+            }
+            for (int i = 0; i < applicable.size(); i++) {
+                RangePredicate p = applicable.get(i);
+                long estimate = ranges[p.attribute().ordinal()].count(p.min(), p.max());
+                if (estimates != null) estimates.put(p.attribute().getName(), estimate);
+                if (estimate < bestEstimate) {
+                    best = i;
+                    bestEstimate = estimate;
+                }
+            }
+            return best != SCAN && bestEstimate * INDEX_COST < liveRows ? best : SCAN;
+        }
+
+        private BitSet candidates(List<RangePredicate> applicable, GeoPredicate geo, int best) {
+            BitSet hits = new BitSet(rowCount);
+            if (best == GEO) {
+                grid.collect(geo, rowCount, hits);
+            } else {
+                RangePredicate p = applicable.get(best);
+                ranges[p.attribute().ordinal()].collect(p.min(), p.max(), hits);
+            }
+            return hits;
+        }
+
+        // Runs the bounds over the columns of rows [begin, end) block by block, leaving out rows before
+        // 'from'; begin is a multiple of 64 and so is end unless it is rowCount. The geographic bound is
+        // checked on the rows that pass. Returns the live rows evaluated. The kernels read the last word
+        // in full, including rows the writer may be appending; their bits are clear in this version.
+        private int scan(List<RangePredicate> applicable, GeoPredicate geo, int from, int begin, int end, PageCollector page) {
+            long[] selection = new long[SCAN_BLOCK >>> 6];
+            int visited = 0;
+            for (int start = begin; start < end; start += SCAN_BLOCK) {
+                int stop = Math.min(start + SCAN_BLOCK, end);
+                int words = (stop - start + 63) >>> 6;
+                LiveRows.copy(live, start >>> 6, selection, words);
+                if (start < from) selection[0] &= -1L << from;
+                for (int w = 0; w < words; w++) {
+                    visited += Long.bitCount(selection[w]);
+                }
+                for (RangePredicate p : applicable) {
+                    kernel.retain(columns[p.attribute().ordinal()], start, stop, p.min(), p.max(), selection);
+                }
+                for (int w = 0; w < words; w++) {
+                    for (long word = selection[w]; word != 0; word &= word - 1) {
+                        int row = start + (w << 6) + Long.numberOfTrailingZeros(word);
+                        if (geo != null && !geo.test(latitudes[row], longitudes[row])) continue;
+                        if (!page.offer(category, ordinals[row], rows[row])) return visited;
+                    }
+                }
+            }
+            return visited;
+        }
+
+        // First row whose ordinal is greater than 'after'
+        private int firstRowAfter(long after) {
+            int lo = 0, hi = rowCount;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (ordinals[mid] <= after) lo = mid + 1;
+                else hi = mid;
+            }
+            return lo;
+        }
+
+        // Checks every predicate except the one the candidates were taken from; grid cells are only
+        // approximate, so the geographic bound is always checked
+        private boolean matches(int row, List<RangePredicate> predicates, GeoPredicate geo, int skip) {
+            for (int i = 0; i < predicates.size(); i++) {
+                RangePredicate p = predicates.get(i);
+                if (i != skip && !p.test(columns[p.attribute().ordinal()][row])) return false;
+            }
+            return geo == null || geo.test(latitudes[row], longitudes[row]);
+        }
+
+        private final class KeywordScan extends Scan {
+            private final String term;
+            private final int[] candidates;
+            private final int first;
+            // A three-character term is exactly one trigram, so its candidates need no check
+            private final boolean exact;
+
+            KeywordScan(String term, long after) {
+                this.term = term;
+                this.candidates = trigrams.candidates(term, rowCount);
+                this.exact = term.length() == 3;
+                int i = Arrays.binarySearch(candidates, firstRowAfter(after));
+                this.first = i < 0 ? -i - 1 : i;
+            }
+
+            @Override
+            int size() {
+                return candidates.length - first;
+            }
+
+            @Override
+            int run(int from, int to, PageCollector page) {
+                StringBuilder text = exact ? null : new StringBuilder(256);
+                int visited = 0;
+                for (int i = first + from; i < first + to; i++) {
+                    int row = candidates[i];
+                    if (!isLive(row)) continue;
+                    Listing item = rows[row];
+                    visited++;
+                    if (!exact) {
+                        text.setLength(0);
+                        if (!SearchText.append(category, item, text) || text.indexOf(term) < 0) continue;
+                    }
+                    if (!page.offer(category, ordinals[row], item)) break;
+                }
+                return visited;
+            }
+        }
+
+        final class FilterScan extends Scan {
+            private final List<RangePredicate> applicable;
+            private final GeoPredicate geo;
+            private final Map<String, Long> estimates = new LinkedHashMap<>();
+            private final int best;
+            private final int from;
+            // First row of the range; a column scan starts on a selection word
+            private final int base;
+            private final BitSet hits;
+
+            FilterScan(List<RangePredicate> predicates, GeoPredicate geo, long after) {
+                this.applicable = applicable(predicates);
+                this.geo = geo;
+                this.best = chooseIndex(applicable, geo, estimates);
+                this.from = firstRowAfter(after);
+                if (best != SCAN) {
+                    hits = candidates(applicable, geo, best);
+                    base = from;
+                } else {
+                    hits = null;
+                    base = from & ~63;
+                }
+            }
+
+            @Override
+            int size() {
+                return rowCount - base;
+            }
+
+            @Override
+            int run(int start, int end, PageCollector page) {
+                if (best == SCAN) return scan(applicable, geo, from, base + start, base + end, page);
+                int visited = 0;
+                for (int row = hits.nextSetBit(base + start); row >= 0 && row < base + end; row = hits.nextSetBit(row + 1)) {
+                    if (!isLive(row)) continue;
+                    visited++;
+                    if (matches(row, applicable, geo, best) && !page.offer(category, ordinals[row], rows[row])) break;
+                }
+                return visited;
+            }
+
+            // How this category was answered, once the scan has run
+            FilterPlan plan() {
+                String index = best >= 0 ? applicable.get(best).attribute().getName() : best == GEO ? "geo" : "scan";
+                return new FilterPlan(category.key(), index, estimates, best != SCAN ? estimates.get(index) : liveRows,
+                        visited(), (int) matched());
+            }
+        }
+    }
+
+    /**
+     * A query over one {@link Version}. Its work is a range of units, and disjoint parts of that range
+     * may be run concurrently on other threads; each part offers its matches in list order.
+     */
+    abstract static class Scan {
+        private int visited;
+        private long matched;
+
+        abstract int size();
+
+        /**
+         * Offers the matches among units {@code [from, to)} to {@code page} until it is complete, and
+         * returns the number of live listings visited.
+         */
+        abstract int run(int from, int to, PageCollector page);
+
+        // Adds the outcome of a part to what plan() and the query metrics report; not thread-safe
+        void count(int visited, long matched) {
+            this.visited += visited;
+            this.matched += matched;
+        }
+
+        int visited() {
+            return visited;
+        }
+
+        long matched() {
+            return matched;
+        }
+    }
+
+    // Listings without data have a NaN price and are left out of the bounds of every attribute
+    private boolean hasData(int row) {
+        return live.get(row) && !Double.isNaN(columns[Attribute.PRICE.ordinal()][row]);
+    }
+
+    // Adds delta to the counts of the row's values; a value whose count drops to zero is removed
+    private void countValues(int row, int delta) {
+        for (Map.Entry<Attribute, TreeMap<Double, Integer>> e : valueCounts.entrySet()) {
+            double v = columns[e.getKey().ordinal()][row];
+            if (Double.isNaN(v)) continue;
+            e.getValue().merge(v, delta, (count, d) -> count + d == 0 ? null : count + d);
+        }
+    }
+
+    // Versions keep the arrays they were given; only rows past their row count are written afterwards
+    private void grow() {
+        int capacity = rows.length * 2;
+        rows = Arrays.copyOf(rows, capacity);
+        ordinals = Arrays.copyOf(ordinals, capacity);
+        latitudes = Arrays.copyOf(latitudes, capacity);
+        longitudes = Arrays.copyOf(longitudes, capacity);
+        for (int a = 0; a < columns.length; a++) {
+            if (columns[a] != null) columns[a] = Arrays.copyOf(columns[a], capacity);
+        }
+    }
+
+    private void compact() {
+        Listing[] remaining = new Listing[rowCount - emptyRows];
+        long[] remainingOrdinals = new long[remaining.length];
+        int n = 0;
+        for (int row = 0; row < rowCount; row++) {
+            if (!live.get(row)) continue;
+            remaining[n] = rows[row];
+            remainingOrdinals[n++] = ordinals[row];
+        }
+        load(remaining, remainingOrdinals, n);
+    }
+
+    // Numbers the items afresh into new structures; they keep their ordinals when given, otherwise
+    // they get new ones
+    private void load(Listing[] items, long[] itemOrdinals, int count) {
+        rows = new Listing[capacityFor(count + count / 4)];
+        ordinals = new long[rows.length];
+        rowCount = 0;
+        emptyRows = 0;
+        rowById = new HashMap<>(Math.max(16, count * 4 / 3));
+        trigrams = new TrigramIndex();
+        resetColumns(rows.length);
+        for (int i = 0; i < count; i++) {
+            append(items[i], itemOrdinals == null ? nextOrdinal++ : itemOrdinals[i]);
+        }
+        for (RangeIndex range : ranges) {
+            if (range != null) range.merge();
+        }
+    }
+
+    private void resetColumns(int capacity) {
+        live = new LiveRows();
+        latitudes = new double[capacity];
+        longitudes = new double[capacity];
+        grid = new GeoGrid();
+        valueCounts.clear();
+        for (Attribute attribute : Attribute.values()) {
+            boolean applies = attribute.appliesTo(category);
+            columns[attribute.ordinal()] = applies ? new double[capacity] : null;
+            ranges[attribute.ordinal()] = applies ? new RangeIndex() : null;
+            if (applies) valueCounts.put(attribute, new TreeMap<>());
+        }
+    }
+
+    // Row capacity is kept a multiple of 64 so that kernels can always read whole selection words
+    private static int capacityFor(int rows) {
+        return Math.max(64, (rows + 63) & ~63);
+    }
+
+    private void append(Listing item, long ordinal) {
+        if (rowCount == rows.length) grow();
+        int row = rowCount++;
+        rows[row] = item;
+        ordinals[row] = ordinal;
+        live.set(row);
+        rowById.put(item.getId(), row);
+        for (Attribute attribute : Attribute.values()) {
+            double[] column = columns[attribute.ordinal()];
+            if (column == null) continue;
+            column[row] = attribute.reader(category).applyAsDouble(item);
+            ranges[attribute.ordinal()].add(row, column[row]);
+        }
+        if (hasData(row)) countValues(row, 1);
+        ListingData data = item.getData();
+        boolean located = data != null && data.getLatitude() != null && data.getLongitude() != null;
+        latitudes[row] = located ? data.getLatitude() : Double.NaN;
+        longitudes[row] = located ? data.getLongitude() : Double.NaN;
+        grid.add(row, latitudes[row], longitudes[row]);
+        scratch.setLength(0);
+        if (SearchText.append(category, item, scratch)) {
+            trigrams.add(row, scratch);
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package com.example.realestate.index;
+
+import java.util.Map;
+
+/**
+ * How one category of a filter request was answered, as reported by {@code explain=true}.
+ *
+ * @param index      the attribute whose range index produced the candidates, or "scan"
+ * @param estimates  index entries inside each usable bound, including rows deleted since the last rebuild
+ * @param estimated  the estimate of the chosen access path
+ * @param candidates live listings actually visited
+ * @param matches    listings that satisfied every bound
+ */
+public record FilterPlan(String category, String index, Map<String, Long> estimates,
+                         long estimated, int candidates, int matches) {
+}
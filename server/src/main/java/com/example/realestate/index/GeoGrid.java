@@ -0,0 +1,105 @@
+package com.example.realestate.index;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Spatial index of one category: a uniform grid of {@code CELL_DEGREES} cells over latitude and
+ * longitude, each listing the rows whose coordinates fall inside it, in row order. Only cells that
+ * hold rows exist.
+ * <p>
+ * A geographic query visits the cells overlapping its bounding box, or, when the box spans more
+ * cells than exist, every existing cell; the rows found are candidates for the exact check. Rows
+ * without coordinates are not indexed. Like {@link RangeIndex}, removed rows stay until the
+ * category is renumbered.
+ * <p>
+ * One grid serves every version of the category until it is renumbered. Rows are only ever
+ * appended, and a query passes the row count of its version and ignores the rows after it. Cells
+ * are immutable and replaced as rows are added, so queries may run on any thread while the writer
+ * of the {@link CategoryIndex} adds rows.
+ */
+final class GeoGrid {
+    // About 1.1 km north to south, so that a radius of a few kilometres touches a few dozen cells
+    static final double CELL_DEGREES = 0.01;
+    private static final int LAT_CELLS = (int) Math.round(180 / CELL_DEGREES);
+    private static final int LON_CELLS = (int) Math.round(360 / CELL_DEGREES);
+
+    private final Map<Integer, Cell> cells = new ConcurrentHashMap<>();
+
+    // The first 'size' rows of 'rows' are this cell's. Later cells of the same position share the
+    // array and only write past it, so a cell never changes once it is published.
+    private record Cell(int[] rows, int size) {
+        Cell add(int row) {
+            int[] grown = size == rows.length ? Arrays.copyOf(rows, size * 2) : rows;
+            grown[size] = row;
+            return new Cell(grown, size + 1);
+        }
+
+        // Number of rows below rowCount; rows are ascending
+        int sizeBelow(int rowCount) {
+            if (size == 0 || rows[size - 1] < rowCount) return size;
+            int i = Arrays.binarySearch(rows, 0, size, rowCount);
+            return i < 0 ? -i - 1 : i;
+        }
+    }
+
+    // Called by the writer only, with rows in ascending order
+    void add(int row, double latitude, double longitude) {
+        if (Double.isNaN(latitude) || Double.isNaN(longitude)) return;
+        int key = latCell(latitude) * LON_CELLS + lonCell(longitude);
+        Cell cell = cells.get(key);
+        cells.put(key, cell == null ? new Cell(new int[]{row, 0, 0, 0}, 1) : cell.add(row));
+    }
+
+    /**
+     * Number of rows below {@code rowCount} in the cells the predicate's bounding box overlaps,
+     * including removed ones.
+     */
+    long count(GeoPredicate p, int rowCount) {
+        long[] count = new long[1];
+        forEachCell(p, cell -> count[0] += cell.sizeBelow(rowCount));
+        return count[0];
+    }
+
+    // Sets the bits of the rows below rowCount in the cells the predicate's bounding box overlaps
+    void collect(GeoPredicate p, int rowCount, BitSet hits) {
+        forEachCell(p, cell -> {
+            for (int i = 0, n = cell.sizeBelow(rowCount); i < n; i++) {
+                hits.set(cell.rows[i]);
+            }
+        });
+    }
+
+    private void forEachCell(GeoPredicate p, Consumer<Cell> action) {
+        int south = latCell(p.south()), north = latCell(p.north());
+        int west = lonCell(p.west()), east = lonCell(p.east());
+        boolean wraps = p.crossesAntimeridian();
+        long lonSpan = wraps ? LON_CELLS - west + east + 1 : east - west + 1;
+        if ((long) (north - south + 1) * lonSpan > cells.size()) {
+            for (Map.Entry<Integer, Cell> entry : cells.entrySet()) {
+                int lat = entry.getKey() / LON_CELLS, lon = entry.getKey() % LON_CELLS;
+                boolean inLon = wraps ? lon >= west || lon <= east : lon >= west && lon <= east;
+                if (lat >= south && lat <= north && inLon) action.accept(entry.getValue());
+            }
+            return;
+        }
+        for (int lat = south; lat <= north; lat++) {
+            for (long i = 0; i < lonSpan; i++) {
+                Cell cell = cells.get(lat * LON_CELLS + (int) ((west + i) % LON_CELLS));
+                if (cell != null) action.accept(cell);
+            }
+        }
+    }
+
+    // The poles and the antimeridian at 180 belong to the last row and column of cells
+    private static int latCell(double latitude) {
+        return Math.min(LAT_CELLS - 1, (int) Math.floor((latitude + 90) / CELL_DEGREES));
+    }
+
+    private static int lonCell(double longitude) {
+        return Math.min(LON_CELLS - 1, (int) Math.floor((longitude + 180) / CELL_DEGREES));
+    }
+}
@@ -0,0 +1,95 @@
+package com.example.realestate.index;
+
+/**
+ * A geographic bound in WGS84 degrees: a bounding box, or the listings within {@code radiusKm} of a
+ * point, whose bounding box is then the box around that circle. Unlike a {@link RangePredicate},
+ * listings without coordinates never satisfy it.
+ * <p>
+ * A box with {@code west > east} crosses the antimeridian.
+ */
+public record GeoPredicate(double south, double north, double west, double east,
+                           double latitude, double longitude, double radiusKm) {
+    // Mean earth radius
+    static final double EARTH_RADIUS_KM = 6371.0088;
+
+    /**
+     * Returns null when no coordinate parameter is given. A radius needs its latitude, longitude and
+     * distance; a box can leave any side open.
+     */
+    public static GeoPredicate of(Double latitude, Double longitude, Double radiusKm,
+                                  Double minLatitude, Double maxLatitude, Double minLongitude, Double maxLongitude) {
+        boolean near = latitude != null || longitude != null || radiusKm != null;
+        boolean box = minLatitude != null || maxLatitude != null || minLongitude != null || maxLongitude != null;
+        if (near && box) throw new IllegalArgumentException("Use either latitude/longitude/radiusKm or a bounding box, not both");
+        if (near) {
+            if (latitude == null || longitude == null || radiusKm == null) {
+                throw new IllegalArgumentException("latitude, longitude and radiusKm are required together");
+            }
+            if (!(radiusKm > 0)) throw new IllegalArgumentException("radiusKm must be greater than 0");
+            checkLatitude(latitude);
+            checkLongitude(longitude);
+            return radius(latitude, longitude, radiusKm);
+        }
+        if (!box) return null;
+        double south = minLatitude == null ? -90 : checkLatitude(minLatitude);
+        double north = maxLatitude == null ? 90 : checkLatitude(maxLatitude);
+        if (south > north) throw new IllegalArgumentException("minLatitude must not be greater than maxLatitude");
+        return new GeoPredicate(south, north,
+                minLongitude == null ? -180 : checkLongitude(minLongitude),
+                maxLongitude == null ? 180 : checkLongitude(maxLongitude),
+                Double.NaN, Double.NaN, Double.NaN);
+    }
+
+    static GeoPredicate radius(double latitude, double longitude, double radiusKm) {
+        double dLat = Math.toDegrees(radiusKm / EARTH_RADIUS_KM);
+        double south = latitude - dLat, north = latitude + dLat;
+        // A circle reaching over a pole covers every longitude
+        if (south <= -90 || north >= 90) {
+            return new GeoPredicate(Math.max(-90, south), Math.min(90, north), -180, 180, latitude, longitude, radiusKm);
+        }
+        double ratio = Math.sin(radiusKm / EARTH_RADIUS_KM) / Math.cos(Math.toRadians(latitude));
+        if (ratio >= 1) return new GeoPredicate(south, north, -180, 180, latitude, longitude, radiusKm);
+        double dLon = Math.toDegrees(Math.asin(ratio));
+        return new GeoPredicate(south, north, wrap(longitude - dLon), wrap(longitude + dLon), latitude, longitude, radiusKm);
+    }
+
+    private static double checkLatitude(double value) {
+        if (!(value >= -90 && value <= 90)) throw new IllegalArgumentException("latitude must be between -90 and 90");
+        return value;
+    }
+
+    private static double checkLongitude(double value) {
+        if (!(value >= -180 && value <= 180)) throw new IllegalArgumentException("longitude must be between -180 and 180");
+        return value;
+    }
+
+    private static double wrap(double longitude) {
+        return longitude < -180 ? longitude + 360 : longitude > 180 ? longitude - 360 : longitude;
+    }
+
+    boolean isRadius() {
+        return !Double.isNaN(radiusKm);
+    }
+
+    boolean crossesAntimeridian() {
+        return west > east;
+    }
+
+    // Whether a point lies inside the bounding box; NaN coordinates never do
+    boolean inBox(double lat, double lon) {
+        if (!(lat >= south && lat <= north)) return false;
+        return crossesAntimeridian() ? lon >= west || lon <= east : lon >= west && lon <= east;
+    }
+
+    boolean test(double lat, double lon) {
+        return inBox(lat, lon) && (!isRadius() || distanceKm(latitude, longitude, lat, lon) <= radiusKm);
+    }
+
+    // Great-circle distance by the haversine formula
+    static double distanceKm(double lat1, double lon1, double lat2, double lon2) {
+        double sinLat = Math.sin(Math.toRadians(lat2 - lat1) / 2);
+        double sinLon = Math.sin(Math.toRadians(lon2 - lon1) / 2);
+        double h = sinLat * sinLat + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) * sinLon * sinLon;
+        return 2 * EARTH_RADIUS_KM * Math.asin(Math.min(1, Math.sqrt(h)));
+    }
+}
@@ -0,0 +1,346 @@
+package com.example.realestate.index;
+
+import com.example.realestate.model.Attribute;
+import com.example.realestate.model.Category;
+import com.example.realestate.model.Listing;
+import com.example.realestate.repository.CommitListener;
+import com.example.realestate.repository.FileBackedRepository;
+import com.example.realestate.repository.RealEstateSnapshot;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiFunction;
+import java.util.function.LongSupplier;
+
+/**
+ * In-memory secondary indexes over all listings, one {@link CategoryIndex} per category.
+ * <p>
+ * The indexes follow the repository as a {@link CommitListener}: each batch is applied to them
+ * under the category's stripe lock, and the resulting {@link CategoryIndex.Version} is published in
+ * the same {@link RealEstateSnapshot} as the list it was built from. A query takes the versions of
+ * one snapshot and reads them without locking, so it never sees an index ahead of or behind the data.
+ * <p>
+ * Keyword searches and filters covering at least {@code realestate.index.parallel-threshold} rows
+ * are split into parts across the categories and within each, and run on a {@link ScanExecutor}, which
+ * also rebuilds the indexes of the ten categories in parallel when the dataset is loaded or replaced.
+ * <p>
+ * Every query adds the rows it visited and the matches it found to two counters per kind of query
+ * ({@code realestate.query.scanned} and {@code realestate.query.matched}), once per query rather than
+ * per row; callers that report single queries can pass a {@link QueryStats} to receive the same two
+ * numbers. The number of listings per category is published as {@code realestate.listings}.
+ */
+@Component
+public class IndexManager implements CommitListener, InitializingBean, DisposableBean {
+    private static final Logger log = LoggerFactory.getLogger(IndexManager.class);
+
+    private final FileBackedRepository repository;
+    // Changed only by the repository's writers, under the stripe lock of the category
+    private final CategoryIndex[] indexes = new CategoryIndex[Category.values().length];
+    // Changes on every rebuild, which hands out new ordinals; seeded from the clock so it differs across restarts
+    private long generation = System.currentTimeMillis();
+    private final ScanExecutor executor;
+    private final QueryMeters searchMeters;
+    private final QueryMeters keywordMeters;
+    private final QueryMeters filterMeters;
+
+    // Plain adders read at scrape time, which cost a query far less than recording into a registered meter
+    private record QueryMeters(LongAdder scanned, LongAdder matched) {
+        static QueryMeters register(MeterRegistry registry, String query) {
+            QueryMeters meters = new QueryMeters(new LongAdder(), new LongAdder());
+            FunctionCounter.builder("realestate.query.scanned", meters.scanned, LongAdder::sum)
+                    .description("Rows visited by queries")
+                    .baseUnit("rows")
+                    .tag("query", query)
+                    .register(registry);
+            FunctionCounter.builder("realestate.query.matched", meters.matched, LongAdder::sum)
+                    .description("Rows that satisfied a query, up to where it stopped")
+                    .baseUnit("rows")
+                    .tag("query", query)
+                    .register(registry);
+            return meters;
+        }
+
+        void record(List<? extends CategoryIndex.Scan> scans, QueryStats stats) {
+            long visited = 0, found = 0;
+            for (CategoryIndex.Scan scan : scans) {
+                visited += scan.visited();
+                found += scan.matched();
+            }
+            scanned.add(visited);
+            matched.add(found);
+            if (stats != null) stats.add(visited, found);
+        }
+    }
+
+    public IndexManager(FileBackedRepository repository,
+                        @Value("${realestate.index.vector-scan:false}") boolean vectorScan,
+                        @Value("${realestate.index.parallelism:0}") int parallelism,
+                        @Value("${realestate.index.parallel-threshold:200000}") long parallelThreshold,
+                        MeterRegistry meterRegistry) {
+        this.repository = repository;
+        this.executor = new ScanExecutor(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors(),
+                parallelThreshold);
+        if (executor.parallelism() > 1) {
+            log.info("Scans over {} rows or more run on up to {} threads", parallelThreshold, executor.parallelism());
+        }
+        RangeKernel kernel = vectorScan ? loadVectorKernel() : RangeKernel.SCALAR;
+        for (Category category : Category.values()) {
+            indexes[category.ordinal()] = new CategoryIndex(category, kernel);
+            Gauge.builder("realestate.listings", this, m -> m.count(category))
+                    .description("Listings in the category")
+                    .tag("ownership", category.getOwnership())
+                    .tag("propertyType", category.getPropertyType())
+                    .register(meterRegistry);
+        }
+        this.searchMeters = QueryMeters.register(meterRegistry, "search");
+        this.keywordMeters = QueryMeters.register(meterRegistry, "keyword");
+        this.filterMeters = QueryMeters.register(meterRegistry, "filter");
+    }
+
+    // Loaded by name so that the incubator module is only needed when the flag is on
+    private static RangeKernel loadVectorKernel() {
+        try {
+            RangeKernel kernel = (RangeKernel) Class.forName("com.example.realestate.index.VectorRangeKernel")
+                    .getDeclaredConstructor().newInstance();
+            kernel.retain(new double[64], 0, 64, 0, 0, new long[1]);
+            log.info("Filter scans use the Vector API");
+            return kernel;
+        } catch (ReflectiveOperationException | LinkageError e) {
+            log.warn("Vector API unavailable (start the JVM with --add-modules jdk.incubator.vector); using scalar filter scans", e);
+            return RangeKernel.SCALAR;
+        }
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        repository.setListener(this);
+    }
+
+    @Override
+    public void destroy() {
+        executor.close();
+    }
+
+    @Override
+    public Object[] reset(RealEstateSnapshot snapshot) {
+        long started = System.nanoTime();
+        generation++;
+        long rebuilt = generation;
+        CategoryIndex.Version[] versions = new CategoryIndex.Version[indexes.length];
+        int count = 0;
+        // The categories share nothing, so their indexes are rebuilt side by side
+        List<Runnable> rebuilds = new ArrayList<>(indexes.length);
+        for (Category category : Category.values()) {
+            List<Listing> items = snapshot.listOf(category);
+            rebuilds.add(() -> versions[category.ordinal()] = indexes[category.ordinal()].rebuild(items, rebuilt));
+            count += items.size();
+        }
+        executor.runAll(rebuilds);
+        log.info("Indexed {} listings in {} ms", count, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+        return versions;
+    }
+
+    @Override
+    public Object committed(Category category, List<Listing> inserted, List<Listing> removed) {
+        return indexes[category.ordinal()].apply(inserted, removed);
+    }
+
+    // The index versions published with the current snapshot, by category ordinal
+    private CategoryIndex.Version[] versions() {
+        RealEstateSnapshot snapshot = repository.snapshot();
+        CategoryIndex.Version[] versions = new CategoryIndex.Version[indexes.length];
+        for (Category category : Category.values()) {
+            versions[category.ordinal()] = (CategoryIndex.Version) snapshot.getIndex(category);
+        }
+        return versions;
+    }
+
+    /**
+     * Listings of the given categories, in category and list order unless sorted.
+     *
+     * @param sort   order of the results, or null for category and list order
+     * @param cursor {@code nextCursor} of the previous page, or null to start at the beginning
+     * @param skip   matches to pass over before the page starts
+     * @param stats  receives the rows the query visited and matched; may be null
+     */
+    public Page list(List<Category> categories, Sort sort, String cursor, int skip, int limit, QueryStats stats) {
+        return filter(categories, List.of(), null, sort, cursor, skip, limit, null, stats, searchMeters);
+    }
+
+    /**
+     * Listings whose searchable text contains the lower-case {@code term}, in category and list order
+     * unless sorted.
+     */
+    public Page searchKeyword(String term, Sort sort, String cursor, int skip, int limit, QueryStats stats) {
+        CategoryIndex.Version[] versions = versions();
+        PageCursor after = resume(versions, cursor, sort);
+        PageCollector page = collector(sort, after, skip, limit, false);
+        walk(versions, List.of(Category.values()), after, page, (index, start) -> index.keywordScan(term, start), stats,
+                keywordMeters);
+        return toPage(versions, page, after, () -> {
+            long total = 0;
+            for (CategoryIndex.Version index : versions) {
+                long count = index.countKeyword(term);
+                if (count < 0) return -1;
+                total += count;
+            }
+            return total;
+        });
+    }
+
+    /**
+     * Listings of the given categories satisfying every predicate, in category and list order unless
+     * sorted.
+     *
+     * @param geo  geographic bound, answered from the grid of each category when that is selective;
+     *             may be null
+     * @param plan receives one entry per category describing how it was answered; may be null. When
+     *             given, every category is evaluated in full so that the plan and the total are complete.
+     * @param stats receives the rows the query visited and matched; may be null
+     */
+    public Page filter(List<Category> categories, List<RangePredicate> predicates, GeoPredicate geo, Sort sort,
+                       String cursor, int skip, int limit, List<FilterPlan> plan, QueryStats stats) {
+        return filter(categories, predicates, geo, sort, cursor, skip, limit, plan, stats, filterMeters);
+    }
+
+    private Page filter(List<Category> categories, List<RangePredicate> predicates, GeoPredicate geo, Sort sort,
+                        String cursor, int skip, int limit, List<FilterPlan> plan, QueryStats stats, QueryMeters meters) {
+        CategoryIndex.Version[] versions = versions();
+        PageCursor after = resume(versions, cursor, sort);
+        PageCollector page = collector(sort, after, skip, limit, plan != null);
+        List<CategoryIndex.Version.FilterScan> scans = walk(versions, categories, after, page,
+                (index, start) -> index.filterScan(predicates, geo, start), stats, meters);
+        if (plan != null) {
+            for (CategoryIndex.Version.FilterScan scan : scans) {
+                plan.add(scan.plan());
+            }
+        }
+        return toPage(versions, page, after, () -> {
+            long total = 0;
+            for (Category category : categories) {
+                long count = versions[category.ordinal()].countFilter(predicates, geo);
+                if (count < 0) return -1;
+                total += count;
+            }
+            return total;
+        });
+    }
+
+    /**
+     * Offers the matches of the categories from the cursor on to the page, in category order. A walk
+     * over enough rows opens every scan up front and runs them on the executor; any other walk opens
+     * one category at a time and stops as soon as the page is complete.
+     *
+     * @param open opens the scan of a category after the given ordinal
+     * @return the scans that were opened, in walk order
+     */
+    private <S extends CategoryIndex.Scan> List<S> walk(CategoryIndex.Version[] versions, List<Category> categories,
+                                                        PageCursor after, PageCollector page,
+                                                        BiFunction<CategoryIndex.Version, Long, S> open,
+                                                        QueryStats stats, QueryMeters meters) {
+        List<Category> walked = new ArrayList<>(categories.size());
+        long rows = 0;
+        for (Category category : categories) {
+            if (isBefore(after, category)) continue;
+            walked.add(category);
+            rows += versions[category.ordinal()].size();
+        }
+        List<S> scans = new ArrayList<>(walked.size());
+        if (executor.isParallel(rows)) {
+            for (Category category : walked) {
+                scans.add(open.apply(versions[category.ordinal()], startAfter(after, category)));
+            }
+            executor.run(scans, page);
+        } else {
+            for (Category category : walked) {
+                if (page.isComplete()) break;
+                S scan = open.apply(versions[category.ordinal()], startAfter(after, category));
+                scans.add(scan);
+                executor.run(List.of(scan), page);
+            }
+        }
+        meters.record(scans, stats);
+        return scans;
+    }
+
+    private static PageCursor resume(CategoryIndex.Version[] versions, String cursor, Sort sort) {
+        if (cursor == null) return null;
+        PageCursor after = PageCursor.decode(cursor);
+        if (after.generation() != generation(versions)) {
+            throw new IllegalArgumentException("Cursor has expired; start again from the first page");
+        }
+        if (!Objects.equals(after.sort(), sort)) {
+            throw new IllegalArgumentException("Cursor belongs to a query with a different sort order");
+        }
+        return after;
+    }
+
+    private static PageCollector collector(Sort sort, PageCursor after, int skip, int limit, boolean countAll) {
+        return sort == null ? new PageBuilder(skip, limit, countAll) : new SortedPageBuilder(sort, after, skip, limit);
+    }
+
+    // Sorted pages resume by sort value, so they walk every category in full and filter by the cursor instead
+    private static boolean isBefore(PageCursor after, Category category) {
+        return after != null && after.sort() == null && category.ordinal() < after.category().ordinal();
+    }
+
+    // Ordinal to continue after within the category; -1 starts at its first listing
+    private static long startAfter(PageCursor after, Category category) {
+        return after != null && after.sort() == null && after.category() == category ? after.ordinal() : -1;
+    }
+
+    /**
+     * The total is only reported for a first page: for free when the query ran to the end anyway,
+     * otherwise when {@code count} can tell it without scanning (it returns -1 when it cannot).
+     */
+    private static Page toPage(CategoryIndex.Version[] versions, PageCollector page, PageCursor after, LongSupplier count) {
+        PageCursor next = page.next(generation(versions));
+        Long total = null;
+        if (after == null) {
+            if (!page.isComplete()) {
+                total = page.offered();
+            } else {
+                long counted = count.getAsLong();
+                if (counted >= 0) total = counted;
+            }
+        }
+        return new Page(page.items(), next == null ? null : next.encode(), total);
+    }
+
+    // Every version of a snapshot comes from the same rebuild; renumbering a category keeps its ordinals
+    private static long generation(CategoryIndex.Version[] versions) {
+        return versions[0].generation();
+    }
+
+    /**
+     * Number of listings in the category.
+     */
+    public int count(Category category) {
+        return ((CategoryIndex.Version) repository.snapshot().getIndex(category)).size();
+    }
+
+    /**
+     * Bounds of the given attributes over all listings of the given categories.
+     */
+    public Summary summarize(List<Category> categories, Set<Attribute> attributes) {
+        CategoryIndex.Version[] versions = versions();
+        Summary summary = new Summary();
+        for (Category category : categories) {
+            versions[category.ordinal()].summarize(attributes, summary);
+        }
+        return summary;
+    }
+}
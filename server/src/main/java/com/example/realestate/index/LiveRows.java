@@ -0,0 +1,83 @@
+package com.example.realestate.index;
+
+import java.util.Arrays;
+
+/**
+ * One bit per row of a {@link CategoryIndex} that still holds a listing, stored in chunks of
+ * {@code CHUNK_ROWS} rows. {@link #freeze()} hands the current chunks to an index version; the
+ * writer copies a frozen chunk before it changes it again, so a version never sees later changes and
+ * a batch only copies the chunks it touches. Reading frozen chunks is thread-safe, the writer side is not.
+ */
+final class LiveRows {
+    private static final int CHUNK_SHIFT = 12;
+    static final int CHUNK_ROWS = 1 << CHUNK_SHIFT;
+    private static final int CHUNK_WORDS = CHUNK_ROWS >>> 6;
+
+    private long[][] chunks = new long[0][];
+    // Whether the chunk at the same position belongs to a frozen version
+    private boolean[] frozen = new boolean[0];
+
+    void set(int row) {
+        long[] chunk = writable(row);
+        chunk[(row & (CHUNK_ROWS - 1)) >>> 6] |= 1L << row;
+    }
+
+    void clear(int row) {
+        long[] chunk = writable(row);
+        chunk[(row & (CHUNK_ROWS - 1)) >>> 6] &= ~(1L << row);
+    }
+
+    boolean get(int row) {
+        return get(chunks, row);
+    }
+
+    /**
+     * The chunks as they are now, for a version to read; later changes do not show in them.
+     */
+    long[][] freeze() {
+        Arrays.fill(frozen, true);
+        return chunks.clone();
+    }
+
+    static boolean get(long[][] chunks, int row) {
+        int c = row >>> CHUNK_SHIFT;
+        return c < chunks.length && chunks[c] != null && (chunks[c][(row & (CHUNK_ROWS - 1)) >>> 6] & (1L << row)) != 0;
+    }
+
+    /**
+     * Copies {@code words} selection words starting at word {@code from} into {@code dest}. Words
+     * no row was ever set in read as zero.
+     */
+    static void copy(long[][] chunks, int from, long[] dest, int words) {
+        int copied = 0;
+        while (copied < words) {
+            int word = from + copied;
+            int c = word / CHUNK_WORDS;
+            int offset = word % CHUNK_WORDS;
+            int n = Math.min(words - copied, CHUNK_WORDS - offset);
+            if (c < chunks.length && chunks[c] != null) {
+                System.arraycopy(chunks[c], offset, dest, copied, n);
+            } else {
+                Arrays.fill(dest, copied, copied + n, 0L);
+            }
+            copied += n;
+        }
+    }
+
+    private long[] writable(int row) {
+        int c = row >>> CHUNK_SHIFT;
+        if (c >= chunks.length) {
+            int length = Math.max(c + 1, chunks.length * 2);
+            chunks = Arrays.copyOf(chunks, length);
+            frozen = Arrays.copyOf(frozen, length);
+        }
+        if (chunks[c] == null) {
+            chunks[c] = new long[CHUNK_WORDS];
+            frozen[c] = false;
+        } else if (frozen[c]) {
+            chunks[c] = chunks[c].clone();
+            frozen[c] = false;
+        }
+        return chunks[c];
+    }
+}
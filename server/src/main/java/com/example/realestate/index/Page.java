@@ -0,0 +1,13 @@
+package com.example.realestate.index;
+
+import java.util.List;
+
+/**
+ * One page of query results.
+ *
+ * @param items      the listings on this page
+ * @param nextCursor opaque position to continue after this page, or null on the last page
+ * @param total      number of matches of the whole query, or null when it cannot be counted cheaply
+ */
+public record Page(List<Object> items, String nextCursor, Long total) {
+}
@@ -0,0 +1,94 @@
+package com.example.realestate.index;
+
+import com.example.realestate.model.Category;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Collects one page of results in list order, so that the walk can stop as soon as the page is
+ * complete instead of materializing every match first.
+ */
+final class PageBuilder implements PageCollector {
+    private final List<Object> items = new ArrayList<>();
+    // Position of each item, so that the page can be merged into another one
+    private final List<Category> categories = new ArrayList<>();
+    private long[] ordinals = new long[16];
+    private final int limit;
+    private final boolean countAll;
+    private int skip;
+    private long offered;
+    private boolean more;
+
+    /**
+     * @param skip     matches to pass over before the page starts
+     * @param limit    size of the page
+     * @param countAll keep counting matches after the page is complete
+     */
+    PageBuilder(int skip, int limit, boolean countAll) {
+        this.skip = skip;
+        this.limit = limit;
+        this.countAll = countAll;
+    }
+
+    @Override
+    public boolean offer(Category category, long ordinal, Object item) {
+        offered++;
+        if (skip > 0) {
+            skip--;
+        } else if (items.size() < limit) {
+            if (items.size() == ordinals.length) ordinals = Arrays.copyOf(ordinals, ordinals.length * 2);
+            ordinals[items.size()] = ordinal;
+            categories.add(category);
+            items.add(item);
+        } else {
+            more = true;
+            return countAll;
+        }
+        return true;
+    }
+
+    @Override
+    public boolean isComplete() {
+        return more && !countAll;
+    }
+
+    @Override
+    public long offered() {
+        return offered;
+    }
+
+    @Override
+    public List<Object> items() {
+        return items;
+    }
+
+    @Override
+    public PageCursor next(long generation) {
+        if (!more) return null;
+        int last = items.size() - 1;
+        return new PageCursor(generation, categories.get(last), ordinals[last], null, 0);
+    }
+
+    @Override
+    public boolean canStopEarly() {
+        return !countAll;
+    }
+
+    @Override
+    public PageCollector part() {
+        // The part can stop once it alone holds every match this page is still missing
+        return new PageBuilder(0, (int) Math.min(Integer.MAX_VALUE, (long) skip + limit - items.size()), countAll);
+    }
+
+    @Override
+    public void merge(PageCollector part) {
+        PageBuilder other = (PageBuilder) part;
+        for (int i = 0; i < other.items.size(); i++) {
+            offer(other.categories.get(i), other.ordinals[i], other.items.get(i));
+        }
+        offered += other.offered - other.items.size();
+        if (other.more) more = true;
+    }
+}
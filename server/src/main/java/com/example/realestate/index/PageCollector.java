@@ -0,0 +1,40 @@
+package com.example.realestate.index;
+
+import com.example.realestate.model.Category;
+
+import java.util.List;
+
+/**
+ * Receives the matches of a query while it walks the categories in order, and turns them into a page.
+ */
+interface PageCollector {
+
+    /**
+     * Offers the next match. Returns false once the page is complete and the caller can stop.
+     */
+    boolean offer(Category category, long ordinal, Object item);
+
+    boolean isComplete();
+
+    // Number of matches offered so far, including ones that did not make it onto the page
+    long offered();
+
+    List<Object> items();
+
+    // Position of the last item on the page, or null when no further match was seen after it
+    PageCursor next(long generation);
+
+    // False when every match has to be seen, so that stopping early is never possible
+    boolean canStopEarly();
+
+    /**
+     * An empty collector for one part of a walk that runs apart from this one. It keeps what this
+     * page may still need from the part, and is folded back in with {@link #merge}.
+     */
+    PageCollector part();
+
+    /**
+     * Adds the matches of a part as if they had been offered here; parts are merged in walk order.
+     */
+    void merge(PageCollector part);
+}
@@ -0,0 +1,40 @@
+package com.example.realestate.index;
+
+import com.example.realestate.model.Category;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Position after the last listing of a page: its category and its ordinal there, and for a sorted
+ * query also its sort value.
+ * <p>
+ * Ordinals are handed out in list order and never reused, so resuming after one neither skips nor
+ * repeats a listing that existed before, whatever was inserted or deleted in between. They are only
+ * valid for the index generation that issued them; a rebuild of the indexes expires every cursor.
+ */
+record PageCursor(long generation, Category category, long ordinal, Sort sort, double value) {
+
+    String encode() {
+        String raw = generation + ":" + category.ordinal() + ":" + ordinal;
+        if (sort != null) {
+            raw += ":" + sort.key().ordinal() + ":" + (sort.descending() ? 1 : 0) + ":" + Long.toHexString(Double.doubleToLongBits(value));
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    static PageCursor decode(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.US_ASCII);
+            String[] parts = raw.split(":");
+            if (parts.length != 3 && parts.length != 6) throw new IllegalArgumentException();
+            Sort sort = parts.length == 3 ? null
+                    : new Sort(Sort.Key.values()[Integer.parseInt(parts[3])], parts[4].equals("1"));
+            double value = parts.length == 3 ? 0 : Double.longBitsToDouble(Long.parseUnsignedLong(parts[5], 16));
+            return new PageCursor(Long.parseLong(parts[0]), Category.values()[Integer.parseInt(parts[1])],
+                    Long.parseLong(parts[2]), sort, value);
+        } catch (IllegalArgumentException | ArrayIndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package com.example.realestate.index;
+
+/**
+ * Rows a query visited and matched, for callers that report them per query. Stays empty when the
+ * query was never run, e.g. because its page came from a cache.
+ */
+public final class QueryStats {
+    private boolean ran;
+    private long scanned;
+    private long matched;
+
+    void add(long visited, long found) {
+        ran = true;
+        scanned += visited;
+        matched += found;
+    }
+
+    public boolean ran() {
+        return ran;
+    }
+
+    public long scanned() {
+        return scanned;
+    }
+
+    public long matched() {
+        return matched;
+    }
+}
@@ -0,0 +1,174 @@
+package com.example.realestate.index;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Sorted secondary index of one numeric attribute: (value, row) pairs in value order.
+ * <p>
+ * New rows go to a small unsorted tail that is merged into the sorted part once it grows past an
+ * eighth of it, so an insert never shifts the whole array. Rows without a value (NaN) are kept
+ * apart and match every range.
+ * <p>
+ * Only the writer of the owning {@link CategoryIndex} changes it, and it never writes where a
+ * {@link View} reads: entries are only appended past the sizes a view captured, and a merge builds
+ * new arrays. Views are therefore safe to read from any thread while the writer goes on.
+ */
+final class RangeIndex {
+    private static final int MIN_MERGE = 256;
+
+    private double[] values = new double[0];
+    private int[] rows = new int[0];
+    private int size;
+    private double[] tailValues = new double[64];
+    private int[] tailRows = new int[64];
+    private int tailSize;
+    private int[] nanRows = new int[0];
+    private int nanCount;
+
+    void add(int row, double value) {
+        if (Double.isNaN(value)) {
+            if (nanCount == nanRows.length) nanRows = Arrays.copyOf(nanRows, Math.max(4, nanCount * 2));
+            nanRows[nanCount++] = row;
+            return;
+        }
+        if (tailSize == tailValues.length) {
+            tailValues = Arrays.copyOf(tailValues, tailSize * 2);
+            tailRows = Arrays.copyOf(tailRows, tailSize * 2);
+        }
+        tailValues[tailSize] = value;
+        tailRows[tailSize++] = row;
+    }
+
+    void mergeIfNeeded() {
+        if (tailSize > Math.max(MIN_MERGE, size / 8)) merge();
+    }
+
+    void merge() {
+        if (tailSize == 0) return;
+        // Views may still be reading the tail, so it is sorted as a copy and replaced afterwards
+        double[] tailValues = Arrays.copyOf(this.tailValues, tailSize);
+        int[] tailRows = Arrays.copyOf(this.tailRows, tailSize);
+        sort(tailValues, tailRows, 0, tailSize - 1);
+        double[] mergedValues = new double[size + tailSize];
+        int[] mergedRows = new int[size + tailSize];
+        int i = 0, j = 0, k = 0;
+        while (i < size && j < tailSize) {
+            if (values[i] <= tailValues[j]) {
+                mergedValues[k] = values[i];
+                mergedRows[k++] = rows[i++];
+            } else {
+                mergedValues[k] = tailValues[j];
+                mergedRows[k++] = tailRows[j++];
+            }
+        }
+        for (; i < size; i++, k++) {
+            mergedValues[k] = values[i];
+            mergedRows[k] = rows[i];
+        }
+        for (; j < tailSize; j++, k++) {
+            mergedValues[k] = tailValues[j];
+            mergedRows[k] = tailRows[j];
+        }
+        values = mergedValues;
+        rows = mergedRows;
+        size = k;
+        tailSize = 0;
+        this.tailValues = new double[64];
+        this.tailRows = new int[64];
+    }
+
+    /**
+     * The entries as they are now.
+     */
+    View view() {
+        return new View(values, rows, size, tailValues, tailRows, tailSize, nanRows, nanCount);
+    }
+
+    /**
+     * The entries of a {@link RangeIndex} at one point, unaffected by later changes.
+     */
+    record View(double[] values, int[] rows, int size, double[] tailValues, int[] tailRows, int tailSize,
+                int[] nanRows, int nanCount) {
+
+        /**
+         * Number of entries inside the range, including rows that were deleted since the last rebuild.
+         */
+        long count(double min, double max) {
+            long count = upperBound(values, size, max) - lowerBound(values, size, min) + nanCount;
+            for (int i = 0; i < tailSize; i++) {
+                if (tailValues[i] >= min && tailValues[i] <= max) count++;
+            }
+            return count;
+        }
+
+        void collect(double min, double max, BitSet out) {
+            for (int i = lowerBound(values, size, min), end = upperBound(values, size, max); i < end; i++) {
+                out.set(rows[i]);
+            }
+            for (int i = 0; i < tailSize; i++) {
+                if (tailValues[i] >= min && tailValues[i] <= max) out.set(tailRows[i]);
+            }
+            for (int i = 0; i < nanCount; i++) {
+                out.set(nanRows[i]);
+            }
+        }
+    }
+
+    // First position whose value is >= min
+    private static int lowerBound(double[] values, int size, double min) {
+        int lo = 0, hi = size;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (values[mid] < min) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    // First position whose value is > max
+    private static int upperBound(double[] values, int size, double max) {
+        int lo = 0, hi = size;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (values[mid] <= max) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    // Three-way quicksort of values[lo..hi] carrying rows along; attribute values repeat a lot
+    private static void sort(double[] values, int[] rows, int lo, int hi) {
+        while (hi - lo > 16) {
+            double pivot = values[(lo + hi) >>> 1];
+            int lt = lo, i = lo, gt = hi;
+            while (i <= gt) {
+                if (values[i] < pivot) swap(values, rows, lt++, i++);
+                else if (values[i] > pivot) swap(values, rows, i, gt--);
+                else i++;
+            }
+            // Recurse into the smaller side to bound the stack depth
+            if (lt - lo < hi - gt) {
+                sort(values, rows, lo, lt - 1);
+                lo = gt + 1;
+            } else {
+                sort(values, rows, gt + 1, hi);
+                hi = lt - 1;
+            }
+        }
+        for (int i = lo + 1; i <= hi; i++) {
+            for (int j = i; j > lo && values[j - 1] > values[j]; j--) {
+                swap(values, rows, j, j - 1);
+            }
+        }
+    }
+
+    private static void swap(double[] values, int[] rows, int a, int b) {
+        double v = values[a];
+        values[a] = values[b];
+        values[b] = v;
+        int r = rows[a];
+        rows[a] = rows[b];
+        rows[b] = r;
+    }
+}
@@ -0,0 +1,29 @@
+package com.example.realestate.index;
+
+/**
+ * Evaluates one range bound over a primitive column, 64 rows per selection word.
+ */
+interface RangeKernel {
+
+    /**
+     * Clears the bit of every row in {@code [from, to)} whose value lies outside {@code [min, max]}.
+     * NaN values stay selected. Word 0 of {@code selection} holds row {@code from}, which is a multiple
+     * of 64, and {@code column} is long enough to read the last word in full.
+     */
+    void retain(double[] column, int from, int to, double min, double max, long[] selection);
+
+    RangeKernel SCALAR = (column, from, to, min, max, selection) -> {
+        int words = (to - from + 63) >>> 6;
+        for (int w = 0; w < words; w++) {
+            long word = selection[w];
+            if (word == 0) continue;
+            int base = from + (w << 6);
+            long keep = 0;
+            for (int j = 0; j < 64; j++) {
+                double v = column[base + j];
+                keep |= (v < min || v > max ? 0L : 1L) << j;
+            }
+            selection[w] = word & keep;
+        }
+    };
+}
@@ -0,0 +1,24 @@
+package com.example.realestate.index;
+
+import com.example.realestate.model.Attribute;
+
+/**
+ * An inclusive bound on one attribute; a missing end is open. Listings without the attribute's
+ * value (NaN) always satisfy it.
+ */
+public record RangePredicate(Attribute attribute, double min, double max) {
+
+    /**
+     * Returns null when neither end is given.
+     */
+    public static RangePredicate of(Attribute attribute, Number min, Number max) {
+        if (min == null && max == null) return null;
+        return new RangePredicate(attribute,
+                min == null ? Double.NEGATIVE_INFINITY : min.doubleValue(),
+                max == null ? Double.POSITIVE_INFINITY : max.doubleValue());
+    }
+
+    boolean test(double value) {
+        return !(value < min || value > max);
+    }
+}
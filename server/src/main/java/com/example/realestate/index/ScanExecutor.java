@@ -0,0 +1,196 @@
+package com.example.realestate.index;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the scans of a query in parts on a dedicated, bounded fork/join pool.
+ * <p>
+ * Every part collects into a page of its own, and the parts are merged back in walk order, so a
+ * query returns exactly what a walk on one thread would. Queries over fewer units than the
+ * threshold, and every query when the pool has a single thread, run on the calling thread. Scans
+ * read an immutable index version, so the parts take no locks. The same pool also rebuilds the
+ * indexes of all categories side by side.
+ */
+final class ScanExecutor implements AutoCloseable {
+    // Parts are a multiple of the scan block, so that every part of a column scan starts on a selection word
+    private static final int MIN_PART = 4 * CategoryIndex.SCAN_BLOCK;
+    // More parts than threads, so that threads finishing early can take over the parts of slower ones
+    private static final int PARTS_PER_THREAD = 4;
+
+    private final ForkJoinPool pool;
+    private final int parallelism;
+    private final long threshold;
+
+    /**
+     * @param parallelism threads of the pool; 1 or less runs every query on the calling thread
+     * @param threshold   units a query has to cover before it is run in parallel
+     */
+    ScanExecutor(int parallelism, long threshold) {
+        this.parallelism = Math.max(1, parallelism);
+        this.threshold = threshold;
+        this.pool = this.parallelism > 1 ? new ForkJoinPool(this.parallelism, p -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(p);
+            thread.setName("index-scan-" + thread.getPoolIndex());
+            return thread;
+        }, null, false) : null;
+    }
+
+    int parallelism() {
+        return parallelism;
+    }
+
+    // Whether a query covering about this many units should be prepared for a parallel run
+    boolean isParallel(long units) {
+        return pool != null && units >= threshold;
+    }
+
+    /**
+     * Offers the matches of every scan to {@code page}, in scan order, and counts each part on its scan.
+     * An unsorted page that can stop early walks the first part on the calling thread before it fans
+     * out, so that a page filled by the first matches costs no more than it does sequentially.
+     */
+    void run(List<? extends CategoryIndex.Scan> scans, PageCollector page) {
+        long units = 0;
+        for (CategoryIndex.Scan scan : scans) {
+            units += scan.size();
+        }
+        if (!isParallel(units)) {
+            for (CategoryIndex.Scan scan : scans) {
+                if (page.isComplete()) break;
+                runWhole(scan, page);
+            }
+            return;
+        }
+
+        long perPart = Math.max(MIN_PART, units / ((long) parallelism * PARTS_PER_THREAD));
+        int partSize = (int) Math.min(Integer.MAX_VALUE - MIN_PART, (perPart + MIN_PART - 1) / MIN_PART * MIN_PART);
+        List<Part> parts = new ArrayList<>();
+        for (CategoryIndex.Scan scan : scans) {
+            int size = scan.size();
+            for (int from = 0; from < size; from += partSize) {
+                parts.add(new Part(scan, from, (int) Math.min(size, (long) from + partSize)));
+            }
+        }
+        if (parts.isEmpty()) return;
+
+        int first = 0;
+        if (page.canStopEarly()) {
+            Part part = parts.get(first++);
+            long before = page.offered();
+            part.scan.count(part.scan.run(part.from, part.to, page), page.offered() - before);
+            if (page.isComplete()) return;
+        }
+        Walk walk = new Walk(page, parts.subList(first, parts.size()));
+        pool.invoke(walk);
+        for (Part part : walk.parts) {
+            if (part.done) part.scan.count(part.visited, part.collected.offered());
+        }
+    }
+
+    /**
+     * Runs independent tasks on the pool and returns once all of them have finished, or runs them one
+     * after another on the calling thread when the pool has a single thread.
+     */
+    void runAll(List<Runnable> tasks) {
+        if (pool == null) {
+            tasks.forEach(Runnable::run);
+            return;
+        }
+        List<ForkJoinTask<?>> adapted = new ArrayList<>(tasks.size());
+        for (Runnable task : tasks) {
+            adapted.add(ForkJoinTask.adapt(task));
+        }
+        pool.invoke(new RecursiveAction() {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected void compute() {
+                ForkJoinTask.invokeAll(adapted);
+            }
+        });
+    }
+
+    private static void runWhole(CategoryIndex.Scan scan, PageCollector page) {
+        long before = page.offered();
+        scan.count(scan.run(0, scan.size(), page), page.offered() - before);
+    }
+
+    @Override
+    public void close() {
+        if (pool == null) return;
+        pool.shutdownNow();
+        try {
+            pool.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static final class Part extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        final CategoryIndex.Scan scan;
+        final int from;
+        final int to;
+        Walk walk;
+        PageCollector collected;
+        int visited;
+        // Guarded by the walk
+        boolean done;
+
+        Part(CategoryIndex.Scan scan, int from, int to) {
+            this.scan = scan;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (walk.stopped) return;
+            visited = scan.run(from, to, collected);
+            walk.completed(this);
+        }
+    }
+
+    /**
+     * Runs the parts and merges each into the page as soon as every part before it is merged. Once
+     * the page is complete, parts that have not started yet are skipped.
+     */
+    private static final class Walk extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        final PageCollector page;
+        final List<Part> parts;
+        private int merged;
+        volatile boolean stopped;
+
+        Walk(PageCollector page, List<Part> parts) {
+            this.page = page;
+            this.parts = parts;
+            // Collectors are made up front, while the page is only touched by this thread
+            for (Part part : parts) {
+                part.walk = this;
+                part.collected = page.part();
+            }
+        }
+
+        @Override
+        protected void compute() {
+            ForkJoinTask.invokeAll(parts);
+        }
+
+        synchronized void completed(Part part) {
+            part.done = true;
+            while (!stopped && merged < parts.size() && parts.get(merged).done) {
+                page.merge(parts.get(merged++).collected);
+                if (page.isComplete()) stopped = true;
+            }
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.example.realestate.index;
+
+import com.example.realestate.model.Attribute;
+import com.example.realestate.model.Category;
+import com.example.realestate.model.Listing;
+
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Order of a sorted query. Listings without a value for the key (NaN) come last in either direction;
+ * ties keep category and list order.
+ */
+public record Sort(Key key, boolean descending) {
+
+    public enum Key {
+        PRICE("price"),
+        AREA("area"),
+        PRICE_PER_SQM("pricePerSqm"),
+        ROOM_COUNT("roomCount");
+
+        private final String name;
+
+        Key(String name) {
+            this.name = name;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * Sort value of a listing of the given category, NaN when it has none.
+         */
+        double value(Category category, Listing item) {
+            return switch (this) {
+                case PRICE -> read(Attribute.PRICE, category, item);
+                case AREA -> read(Attribute.AREA, category, item);
+                case PRICE_PER_SQM -> {
+                    double area = read(Attribute.AREA, category, item);
+                    yield area > 0 ? read(Attribute.PRICE, category, item) / area : Double.NaN;
+                }
+                case ROOM_COUNT -> read(Attribute.ROOM_COUNT, category, item);
+            };
+        }
+
+        private static double read(Attribute attribute, Category category, Listing item) {
+            ToDoubleFunction<Listing> reader = attribute.reader(category);
+            return reader == null ? Double.NaN : reader.applyAsDouble(item);
+        }
+    }
+
+    /**
+     * Returns null when no sort key is given; {@code order} defaults to ascending.
+     */
+    public static Sort parse(String sort, String order) {
+        if (sort == null || sort.isBlank()) return null;
+        Key key = null;
+        for (Key k : Key.values()) {
+            if (k.name.equalsIgnoreCase(sort.trim())) key = k;
+        }
+        if (key == null) throw new IllegalArgumentException("Invalid sort: " + sort + ". Allowed: price, area, pricePerSqm, roomCount");
+        if (order == null || order.isBlank() || order.trim().equalsIgnoreCase("asc")) return new Sort(key, false);
+        if (order.trim().equalsIgnoreCase("desc")) return new Sort(key, true);
+        throw new IllegalArgumentException("Invalid order: " + order + ". Allowed: asc, desc");
+    }
+
+    /**
+     * Negative when the first listing comes before the second.
+     */
+    int compare(double value1, int category1, long ordinal1, double value2, int category2, long ordinal2) {
+        boolean missing1 = Double.isNaN(value1), missing2 = Double.isNaN(value2);
+        if (missing1 != missing2) return missing1 ? 1 : -1;
+        if (!missing1) {
+            int c = Double.compare(value1, value2);
+            if (c != 0) return descending ? -c : c;
+        }
+        int c = Integer.compare(category1, category2);
+        return c != 0 ? c : Long.compare(ordinal1, ordinal2);
+    }
+
+    @Override
+    public String toString() {
+        return key.name + (descending ? ",desc" : ",asc");
+    }
+}
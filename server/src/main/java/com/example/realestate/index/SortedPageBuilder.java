@@ -0,0 +1,173 @@
+package com.example.realestate.index;
+
+import com.example.realestate.model.Category;
+import com.example.realestate.model.Listing;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Collects one page of a sorted query. Every match has to be seen, but only the first
+ * {@code skip + limit} in sort order are kept, in a bounded heap whose root is the last of them.
+ * A page over N matches therefore costs O(N log K) and never copies or sorts the matches.
+ */
+final class SortedPageBuilder implements PageCollector {
+    private final Sort sort;
+    private final PageCursor after;
+    private final int skip;
+    private final int limit;
+    private final int capacity;
+
+    // Heap of the kept matches in parallel arrays; grown on demand up to capacity
+    private double[] values = new double[16];
+    private int[] categories = new int[16];
+    private long[] ordinals = new long[16];
+    private Object[] kept = new Object[16];
+    private int size;
+    private long offered;
+    private List<Object> items;
+    private int last = -1;
+
+    /**
+     * @param after only matches after this position count; null for the first page
+     */
+    SortedPageBuilder(Sort sort, PageCursor after, int skip, int limit) {
+        this.sort = sort;
+        this.after = after;
+        this.skip = skip;
+        this.limit = limit;
+        this.capacity = (int) Math.min(Integer.MAX_VALUE - 8, (long) skip + limit);
+    }
+
+    @Override
+    public boolean offer(Category category, long ordinal, Object item) {
+        double value = sort.key().value(category, (Listing) item);
+        int c = category.ordinal();
+        if (after != null && sort.compare(value, c, ordinal, after.value(), after.category().ordinal(), after.ordinal()) <= 0) {
+            return true;
+        }
+        offered++;
+        keep(value, c, ordinal, item);
+        return true;
+    }
+
+    private void keep(double value, int c, long ordinal, Object item) {
+        if (size < capacity) {
+            if (size == values.length) grow();
+            set(size, value, c, ordinal, item);
+            siftUp(size++);
+        } else if (capacity > 0 && sort.compare(value, c, ordinal, values[0], categories[0], ordinals[0]) < 0) {
+            set(0, value, c, ordinal, item);
+            siftDown(0);
+        }
+    }
+
+    @Override
+    public boolean isComplete() {
+        return false;
+    }
+
+    @Override
+    public long offered() {
+        return offered;
+    }
+
+    @Override
+    public List<Object> items() {
+        if (items == null) {
+            Integer[] order = new Integer[size];
+            for (int i = 0; i < size; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, (a, b) -> sort.compare(values[a], categories[a], ordinals[a], values[b], categories[b], ordinals[b]));
+            items = new ArrayList<>(Math.max(0, size - skip));
+            for (int i = skip; i < size; i++) {
+                items.add(kept[order[i]]);
+            }
+            if (size > skip) last = order[size - 1];
+        }
+        return items;
+    }
+
+    @Override
+    public PageCursor next(long generation) {
+        items();
+        if (offered <= capacity || last < 0) return null;
+        return new PageCursor(generation, Category.values()[categories[last]], ordinals[last], sort, values[last]);
+    }
+
+    @Override
+    public boolean canStopEarly() {
+        return false;
+    }
+
+    @Override
+    public PageCollector part() {
+        return new SortedPageBuilder(sort, after, skip, limit);
+    }
+
+    @Override
+    public void merge(PageCollector part) {
+        SortedPageBuilder other = (SortedPageBuilder) part;
+        for (int i = 0; i < other.size; i++) {
+            keep(other.values[i], other.categories[i], other.ordinals[i], other.kept[i]);
+        }
+        offered += other.offered;
+    }
+
+    private void set(int i, double value, int category, long ordinal, Object item) {
+        values[i] = value;
+        categories[i] = category;
+        ordinals[i] = ordinal;
+        kept[i] = item;
+    }
+
+    // The root is the match that sorts last, so a better match replaces it
+    private boolean later(int i, int j) {
+        return sort.compare(values[i], categories[i], ordinals[i], values[j], categories[j], ordinals[j]) > 0;
+    }
+
+    private void siftUp(int i) {
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (!later(i, parent)) break;
+            swap(i, parent);
+            i = parent;
+        }
+    }
+
+    private void siftDown(int i) {
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= size) break;
+            if (child + 1 < size && later(child + 1, child)) child++;
+            if (!later(child, i)) break;
+            swap(i, child);
+            i = child;
+        }
+    }
+
+    private void swap(int i, int j) {
+        double v = values[i];
+        values[i] = values[j];
+        values[j] = v;
+        int c = categories[i];
+        categories[i] = categories[j];
+        categories[j] = c;
+        long o = ordinals[i];
+        ordinals[i] = ordinals[j];
+        ordinals[j] = o;
+        Object x = kept[i];
+        kept[i] = kept[j];
+        kept[j] = x;
+    }
+
+    private void grow() {
+        int length = (int) Math.min(capacity, values.length * 2L);
+        values = Arrays.copyOf(values, length);
+        categories = Arrays.copyOf(categories, length);
+        ordinals = Arrays.copyOf(ordinals, length);
+        kept = Arrays.copyOf(kept, length);
+    }
+}
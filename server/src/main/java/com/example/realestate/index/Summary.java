@@ -0,0 +1,32 @@
+package com.example.realestate.index;
+
+import com.example.realestate.model.Attribute;
+
+/**
+ * Minimum and maximum of each attribute over a set of listings.
+ */
+public final class Summary {
+    private final double[] min = new double[Attribute.values().length];
+    private final double[] max = new double[Attribute.values().length];
+    private final boolean[] seen = new boolean[Attribute.values().length];
+
+    void add(Attribute attribute, double lo, double hi) {
+        int a = attribute.ordinal();
+        min[a] = seen[a] ? Math.min(min[a], lo) : lo;
+        max[a] = seen[a] ? Math.max(max[a], hi) : hi;
+        seen[a] = true;
+    }
+
+    // False when no listing had the attribute
+    public boolean has(Attribute attribute) {
+        return seen[attribute.ordinal()];
+    }
+
+    public double min(Attribute attribute) {
+        return min[attribute.ordinal()];
+    }
+
+    public double max(Attribute attribute) {
+        return max[attribute.ordinal()];
+    }
+}
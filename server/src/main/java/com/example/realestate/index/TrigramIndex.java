@@ -0,0 +1,258 @@
+package com.example.realestate.index;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Inverted index from every three-character substring of a row's text to the rows containing it.
+ * <p>
+ * Rows are added in ascending row order, so each posting list is stored as delta-encoded varints,
+ * which keeps the index at roughly one byte per (trigram, row) pair. Trigrams are packed into a
+ * long and kept in an open-addressing table.
+ * <p>
+ * Only the writer of the owning {@link CategoryIndex} adds rows. Queries go through a {@link View},
+ * which reads an immutable {@link Posting} per slot; {@link #view()} publishes a new one for every
+ * slot that changed. A posting shares its bytes with the writer, which only appends past its length,
+ * so a view sees each posting as it was at that point or later, and later rows are cut off by the
+ * row count of the query's version.
+ */
+final class TrigramIndex {
+    private static final long USED = 1L << 48;
+    // Rough cost of checking one candidate's text, in decoded posting entries
+    private static final int VERIFY_COST = 256;
+
+    private long[] keys = new long[1 << 12];
+    private byte[][] postings = new byte[keys.length][];
+    private int[] lengths = new int[keys.length];
+    private int[] lastRows = new int[keys.length];
+    private int[] counts = new int[keys.length];
+    private int size;
+    // What views read, by slot; a null slot is empty
+    private Posting[] published = new Posting[keys.length];
+    // Slots appended to since the last view()
+    private boolean[] dirty = new boolean[keys.length];
+    private int[] touched = new int[64];
+    private int touchedCount;
+
+    /**
+     * The rows of one trigram up to some point: {@code count} delta-encoded rows in the first
+     * {@code length} bytes of {@code data}.
+     */
+    record Posting(long key, byte[] data, int length, int count) {
+    }
+
+    /**
+     * Indexes every trigram of {@code text} for {@code row}, which must not be lower than any row added before.
+     */
+    void add(int row, CharSequence text) {
+        for (int i = 0; i + 3 <= text.length(); i++) {
+            int slot = slotFor(key(text, i));
+            if (counts[slot] > 0 && lastRows[slot] == row) continue;
+            append(slot, counts[slot] == 0 ? row + 1 : row - lastRows[slot]);
+            lastRows[slot] = row;
+            counts[slot]++;
+            if (!dirty[slot]) {
+                dirty[slot] = true;
+                if (touchedCount == touched.length) touched = Arrays.copyOf(touched, touchedCount * 2);
+                touched[touchedCount++] = slot;
+            }
+        }
+    }
+
+    /**
+     * Publishes the slots changed since the last call and returns what queries read from now on.
+     */
+    View view() {
+        for (int i = 0; i < touchedCount; i++) {
+            int slot = touched[i];
+            published[slot] = new Posting(keys[slot], postings[slot], lengths[slot], counts[slot]);
+            dirty[slot] = false;
+        }
+        touchedCount = 0;
+        return new View(published);
+    }
+
+    /**
+     * The index as of one version. {@code postings} is shared with later views, so its slots may hold
+     * rows added since; every query passes the row count of its version to leave those out.
+     */
+    record View(Posting[] postings) {
+
+        /**
+         * Returns the ascending rows below {@code rowCount} whose text may contain {@code term}. For
+         * terms of three or more characters the result is the intersection of the term's trigram
+         * postings; shorter terms take the union of every posting whose trigram contains them.
+         * Candidates are a superset of the matches; only for a term of exactly three characters are
+         * they exact.
+         */
+        int[] candidates(String term, int rowCount) {
+            if (term.length() < 3) return union(term, rowCount);
+            Posting[] found = new Posting[term.length() - 2];
+            for (int i = 0; i + 3 <= term.length(); i++) {
+                Posting posting = find(key(term, i));
+                if (posting == null) return new int[0];
+                found[i] = posting;
+            }
+            Posting[] sorted = Arrays.stream(found).distinct()
+                    .sorted((a, b) -> Integer.compare(a.count(), b.count()))
+                    .toArray(Posting[]::new);
+
+            int[] result = decode(sorted[0], rowCount);
+            int length = result.length;
+            for (int s = 1; s < sorted.length && length > 0; s++) {
+                // Checking a few candidates directly is cheaper than streaming a posting list far longer than them
+                if (sorted[s].count() > (long) length * VERIFY_COST) break;
+                length = retain(result, length, sorted[s]);
+            }
+            return Arrays.copyOf(result, length);
+        }
+
+        private int[] union(String term, int rowCount) {
+            BitSet rows = new BitSet(rowCount);
+            for (Posting posting : postings) {
+                if (posting == null || !contains(posting.key(), term)) continue;
+                for (Cursor c = new Cursor(posting); c.next() && c.row < rowCount; ) {
+                    rows.set(c.row);
+                }
+            }
+            return rows.stream().toArray();
+        }
+
+        // Keeps the rows of result[0..length) that also appear in the posting; both are ascending
+        private static int retain(int[] result, int length, Posting posting) {
+            Cursor c = new Cursor(posting);
+            int kept = 0;
+            for (int i = 0; i < length; i++) {
+                int wanted = result[i];
+                while (c.row < wanted) {
+                    if (!c.next()) return kept;
+                }
+                if (c.row == wanted) result[kept++] = wanted;
+            }
+            return kept;
+        }
+
+        private static int[] decode(Posting posting, int rowCount) {
+            int[] rows = new int[posting.count()];
+            int n = 0;
+            for (Cursor c = new Cursor(posting); c.next() && c.row < rowCount; ) {
+                rows[n++] = c.row;
+            }
+            return n == rows.length ? rows : Arrays.copyOf(rows, n);
+        }
+
+        private Posting find(long key) {
+            int mask = postings.length - 1;
+            for (int slot = hash(key) & mask; ; slot = (slot + 1) & mask) {
+                Posting posting = postings[slot];
+                if (posting == null) return null;
+                if (posting.key() == key) return posting;
+            }
+        }
+    }
+
+    private static final class Cursor {
+        private final byte[] data;
+        private final int end;
+        private int pos;
+        int row = -1;
+
+        Cursor(Posting posting) {
+            this.data = posting.data();
+            this.end = posting.length();
+        }
+
+        boolean next() {
+            if (pos >= end) return false;
+            int delta = 0;
+            for (int shift = 0; ; shift += 7) {
+                byte b = data[pos++];
+                delta |= (b & 0x7f) << shift;
+                if (b >= 0) break;
+            }
+            row += delta;
+            return true;
+        }
+    }
+
+    private void append(int slot, int value) {
+        byte[] data = postings[slot];
+        int pos = lengths[slot];
+        if (data == null) {
+            data = postings[slot] = new byte[8];
+        } else if (pos + 5 > data.length) {
+            data = postings[slot] = Arrays.copyOf(data, Math.max(data.length * 2, pos + 5));
+        }
+        while ((value & ~0x7f) != 0) {
+            data[pos++] = (byte) ((value & 0x7f) | 0x80);
+            value >>>= 7;
+        }
+        data[pos++] = (byte) value;
+        lengths[slot] = pos;
+    }
+
+    private static long key(CharSequence text, int i) {
+        return USED | ((long) text.charAt(i) << 32) | ((long) text.charAt(i + 1) << 16) | text.charAt(i + 2);
+    }
+
+    private static boolean contains(long key, String term) {
+        char c0 = (char) (key >>> 32), c1 = (char) (key >>> 16), c2 = (char) key;
+        if (term.length() == 1) {
+            char t = term.charAt(0);
+            return c0 == t || c1 == t || c2 == t;
+        }
+        char t0 = term.charAt(0), t1 = term.charAt(1);
+        return (c0 == t0 && c1 == t1) || (c1 == t0 && c2 == t1);
+    }
+
+    private int slotFor(long key) {
+        int mask = keys.length - 1;
+        int slot = hash(key) & mask;
+        while (keys[slot] != 0) {
+            if (keys[slot] == key) return slot;
+            slot = (slot + 1) & mask;
+        }
+        if (2 * (size + 1) > keys.length) {
+            grow();
+            return slotFor(key);
+        }
+        keys[slot] = key;
+        size++;
+        return slot;
+    }
+
+    private void grow() {
+        long[] oldKeys = keys;
+        byte[][] oldPostings = postings;
+        int[] oldLengths = lengths, oldLastRows = lastRows, oldCounts = counts;
+        int capacity = oldKeys.length * 2;
+        keys = new long[capacity];
+        postings = new byte[capacity][];
+        lengths = new int[capacity];
+        lastRows = new int[capacity];
+        counts = new int[capacity];
+        // Views keep the old table; the new one is published in full by the next view()
+        published = new Posting[capacity];
+        dirty = new boolean[capacity];
+        touched = new int[Math.max(64, size)];
+        touchedCount = 0;
+        int mask = capacity - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] == 0) continue;
+            int slot = hash(oldKeys[i]) & mask;
+            while (keys[slot] != 0) slot = (slot + 1) & mask;
+            keys[slot] = oldKeys[i];
+            postings[slot] = oldPostings[i];
+            lengths[slot] = oldLengths[i];
+            lastRows[slot] = oldLastRows[i];
+            counts[slot] = oldCounts[i];
+            dirty[slot] = true;
+            touched[touchedCount++] = slot;
+        }
+    }
+
+    private static int hash(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
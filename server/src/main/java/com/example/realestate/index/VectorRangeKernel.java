@@ -0,0 +1,33 @@
+package com.example.realestate.index;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * {@link RangeKernel} on the incubating Vector API. Only loaded by name when
+ * {@code realestate.index.vector-scan} is enabled and the JVM runs with
+ * {@code --add-modules jdk.incubator.vector}.
+ */
+final class VectorRangeKernel implements RangeKernel {
+    private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+
+    @Override
+    public void retain(double[] column, int from, int to, double min, double max, long[] selection) {
+        int lanes = SPECIES.length();
+        int words = (to - from + 63) >>> 6;
+        for (int w = 0; w < words; w++) {
+            long word = selection[w];
+            if (word == 0) continue;
+            int base = from + (w << 6);
+            long keep = 0;
+            for (int j = 0; j < 64; j += lanes) {
+                DoubleVector v = DoubleVector.fromArray(SPECIES, column, base + j);
+                // NaN compares false both ways, so it is never outside
+                long outside = v.compare(VectorOperators.LT, min).or(v.compare(VectorOperators.GT, max)).toLong();
+                keep |= (~outside & ((1L << lanes) - 1)) << j;
+            }
+            selection[w] = word & keep;
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.example.realestate.model;
+
+import com.example.realestate.model.RealEstateModels.*;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Numeric listing attributes that can be filtered on and summarized.
+ * <p>
+ * The accessor of every attribute is resolved once per {@link Category}, so scans read plain
+ * primitives through a typed getter instead of looking fields up by name. Attributes of the shared
+ * {@code data} object read as NaN when a listing has no data.
+ */
+public enum Attribute {
+    PRICE("Price", false),
+    AREA("Area", false),
+    MORTGAGE_PRICE("MortgagePrice", false),
+    ROOM_COUNT("RoomCount", true),
+    FLOOR_COUNT("FloorCount", true),
+    YARD_AREA("YardArea", false);
+
+    private static final Attribute[] VALUES = values();
+    // By attribute ordinal; categories without the attribute map to null
+    private static final List<EnumMap<Category, ToDoubleFunction<Listing>>> READERS = resolveAll();
+
+    private final String suffix;
+    private final boolean integral;
+
+    Attribute(String suffix, boolean integral) {
+        this.suffix = suffix;
+        this.integral = integral;
+    }
+
+    // "Price", "RoomCount", ... as used by the min/max request parameters and stats keys
+    public String getSuffix() {
+        return suffix;
+    }
+
+    // "price", "roomCount", ... as used in explain output
+    public String getName() {
+        return Character.toLowerCase(suffix.charAt(0)) + suffix.substring(1);
+    }
+
+    public boolean isIntegral() {
+        return integral;
+    }
+
+    public boolean appliesTo(Category category) {
+        return READERS.get(ordinal()).get(category) != null;
+    }
+
+    /**
+     * Returns the accessor of this attribute for listings of the given category, or null when
+     * listings of that category do not have the attribute.
+     */
+    public ToDoubleFunction<Listing> reader(Category category) {
+        return READERS.get(ordinal()).get(category);
+    }
+
+    private static List<EnumMap<Category, ToDoubleFunction<Listing>>> resolveAll() {
+        List<EnumMap<Category, ToDoubleFunction<Listing>>> readers = new ArrayList<>(VALUES.length);
+        for (Attribute attribute : VALUES) {
+            EnumMap<Category, ToDoubleFunction<Listing>> byCategory = new EnumMap<>(Category.class);
+            for (Category category : Category.values()) {
+                byCategory.put(category, resolve(attribute, category));
+            }
+            readers.add(byCategory);
+        }
+        return readers;
+    }
+
+    private static ToDoubleFunction<Listing> resolve(Attribute attribute, Category category) {
+        return switch (attribute) {
+            case PRICE -> x -> x.getData() == null ? Double.NaN : x.getData().price();
+            case AREA -> x -> x.getData() == null ? Double.NaN : x.getData().getArea();
+            case MORTGAGE_PRICE -> category.isSale() ? null
+                    : x -> x.getData() == null ? Double.NaN : ((RentData) x.getData()).getMortgagePrice();
+            case ROOM_COUNT -> switch (category) {
+                case SALE_OFFICE -> x -> ((OfficeSale) x).getRoomCount();
+                case SALE_SHOP -> x -> ((ShopSale) x).getRoomCount();
+                case SALE_APARTMENT -> x -> ((ApartmentSale) x).getRoomCount();
+                case RENT_OFFICE -> x -> ((OfficeRent) x).getRoomCount();
+                case RENT_SHOP -> x -> ((ShopRent) x).getRoomCount();
+                case RENT_APARTMENT -> x -> ((ApartmentRent) x).getRoomCount();
+                default -> null;
+            };
+            case FLOOR_COUNT -> switch (category) {
+                case SALE_APARTMENT -> x -> ((ApartmentSale) x).getFloorCount();
+                case RENT_APARTMENT -> x -> ((ApartmentRent) x).getFloorCount();
+                default -> null;
+            };
+            case YARD_AREA -> switch (category) {
+                case SALE_VILLA -> x -> ((VillaSale) x).getYardArea();
+                case RENT_VILLA -> x -> ((VillaRent) x).getYardArea();
+                default -> null;
+            };
+        };
+    }
+}
@@ -0,0 +1,114 @@
+package com.example.realestate.model;
+
+import com.example.realestate.model.RealEstateModels.*;
+
+import java.util.List;
+
+/**
+ * The ten listing collections of {@link RealEstate}, in the order they are reported by search.
+ */
+public enum Category {
+    SALE_LAND("sale", "land", LandSale.class),
+    SALE_OFFICE("sale", "office", OfficeSale.class),
+    SALE_SHOP("sale", "shop", ShopSale.class),
+    SALE_VILLA("sale", "villa", VillaSale.class),
+    SALE_APARTMENT("sale", "apartment", ApartmentSale.class),
+    RENT_LAND("rent", "land", LandRent.class),
+    RENT_OFFICE("rent", "office", OfficeRent.class),
+    RENT_SHOP("rent", "shop", ShopRent.class),
+    RENT_VILLA("rent", "villa", VillaRent.class),
+    RENT_APARTMENT("rent", "apartment", ApartmentRent.class);
+
+    private static final Category[] VALUES = values();
+
+    private final String ownership;
+    private final String propertyType;
+    private final Class<? extends Listing> itemType;
+
+    Category(String ownership, String propertyType, Class<? extends Listing> itemType) {
+        this.ownership = ownership;
+        this.propertyType = propertyType;
+        this.itemType = itemType;
+    }
+
+    public String getOwnership() {
+        return ownership;
+    }
+
+    public String getPropertyType() {
+        return propertyType;
+    }
+
+    public Class<? extends Listing> getItemType() {
+        return itemType;
+    }
+
+    public boolean isSale() {
+        return "sale".equals(ownership);
+    }
+
+    // "sale/land", "rent/apartment", ...
+    public String key() {
+        return ownership + "/" + propertyType;
+    }
+
+    @SuppressWarnings("unchecked")
+    public List<Listing> listOf(RealEstate data) {
+        List<?> list = switch (this) {
+            case SALE_LAND -> data.getSale().getLand();
+            case SALE_OFFICE -> data.getSale().getCommercial().getOffice();
+            case SALE_SHOP -> data.getSale().getCommercial().getShop();
+            case SALE_VILLA -> data.getSale().getResidential().getVilla();
+            case SALE_APARTMENT -> data.getSale().getResidential().getApartment();
+            case RENT_LAND -> data.getRent().getLand();
+            case RENT_OFFICE -> data.getRent().getCommercial().getOffice();
+            case RENT_SHOP -> data.getRent().getCommercial().getShop();
+            case RENT_VILLA -> data.getRent().getResidential().getVilla();
+            case RENT_APARTMENT -> data.getRent().getResidential().getApartment();
+        };
+        return (List<Listing>) list;
+    }
+
+    /**
+     * Returns a copy of {@code data} with this category's list replaced. Only the objects on the path
+     * to the list are copied; every other list is shared with {@code data}.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public RealEstate withList(RealEstate data, List<? extends Listing> items) {
+        List list = items;
+        Sale sale = data.getSale();
+        Rent rent = data.getRent();
+        return switch (this) {
+            case SALE_LAND -> new RealEstate(new Sale(list, sale.getCommercial(), sale.getResidential()), rent);
+            case SALE_OFFICE -> new RealEstate(new Sale(sale.getLand(), new CommercialSale(list, sale.getCommercial().getShop()), sale.getResidential()), rent);
+            case SALE_SHOP -> new RealEstate(new Sale(sale.getLand(), new CommercialSale(sale.getCommercial().getOffice(), list), sale.getResidential()), rent);
+            case SALE_VILLA -> new RealEstate(new Sale(sale.getLand(), sale.getCommercial(), new ResidentialSale(list, sale.getResidential().getApartment())), rent);
+            case SALE_APARTMENT -> new RealEstate(new Sale(sale.getLand(), sale.getCommercial(), new ResidentialSale(sale.getResidential().getVilla(), list)), rent);
+            case RENT_LAND -> new RealEstate(sale, new Rent(list, rent.getCommercial(), rent.getResidential()));
+            case RENT_OFFICE -> new RealEstate(sale, new Rent(rent.getLand(), new CommercialRent(list, rent.getCommercial().getShop()), rent.getResidential()));
+            case RENT_SHOP -> new RealEstate(sale, new Rent(rent.getLand(), new CommercialRent(rent.getCommercial().getOffice(), list), rent.getResidential()));
+            case RENT_VILLA -> new RealEstate(sale, new Rent(rent.getLand(), rent.getCommercial(), new ResidentialRent(list, rent.getResidential().getApartment())));
+            case RENT_APARTMENT -> new RealEstate(sale, new Rent(rent.getLand(), rent.getCommercial(), new ResidentialRent(rent.getResidential().getVilla(), list)));
+        };
+    }
+
+    /**
+     * Resolves a single category, or returns null when the ownership/property type pair is unknown.
+     */
+    public static Category of(String ownership, String propertyType) {
+        if (ownership == null || propertyType == null) return null;
+        for (Category c : VALUES) {
+            if (c.ownership.equalsIgnoreCase(ownership) && c.propertyType.equalsIgnoreCase(propertyType)) {
+                return c;
+            }
+        }
+        return null;
+    }
+
+    public static Category fromKey(String key) {
+        int slash = key.indexOf('/');
+        Category c = slash < 0 ? null : of(key.substring(0, slash), key.substring(slash + 1));
+        if (c == null) throw new IllegalArgumentException("Unknown category: " + key);
+        return c;
+    }
+}
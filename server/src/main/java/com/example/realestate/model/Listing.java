@@ -0,0 +1,12 @@
+package com.example.realestate.model;
+
+/**
+ * Common contract of every advertisement stored under a category list.
+ */
+public interface Listing {
+    String getId();
+
+    void setId(String id);
+
+    ListingData getData();
+}
@@ -0,0 +1,22 @@
+package com.example.realestate.model;
+
+/**
+ * Common contact, area and price fields of {@link RealEstateModels.SaleData} and {@link RealEstateModels.RentData}.
+ */
+public interface ListingData {
+    String getAddress();
+
+    String getEmail();
+
+    double getArea();
+
+    String getOwnerFullName();
+
+    // Null when the listing has no coordinates
+    Double getLatitude();
+
+    Double getLongitude();
+
+    // Full price for sales, rent price for rentals; not a bean property, so it is never serialized
+    double price();
+}
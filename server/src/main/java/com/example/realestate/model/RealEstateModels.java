@@ -27,24 +27,44 @@ public class RealEstateModels {
     @Data
     @NoArgsConstructor
     @AllArgsConstructor
-    public static class SaleData {
+    public static class SaleData implements ListingData {
         private String address;
         private String email;
         private double area;
         private double fullPrice;
         private String ownerFullName;
+        // Optional WGS84 coordinates in degrees; left out of the JSON while unset
+        @JsonInclude(JsonInclude.Include.NON_NULL)
+        private Double latitude;
+        @JsonInclude(JsonInclude.Include.NON_NULL)
+        private Double longitude;
+
+        @Override
+        public double price() {
+            return fullPrice;
+        }
     }
 
     @Data
     @NoArgsConstructor
     @AllArgsConstructor
-    public static class RentData {
+    public static class RentData implements ListingData {
         private String address;
         private String email;
         private double area;
         private double rentPrice;
         private double mortgagePrice;
         private String ownerFullName;
+        // Optional WGS84 coordinates in degrees; left out of the JSON while unset
+        @JsonInclude(JsonInclude.Include.NON_NULL)
+        private Double latitude;
+        @JsonInclude(JsonInclude.Include.NON_NULL)
+        private Double longitude;
+
+        @Override
+        public double price() {
+            return rentPrice;
+        }
     }
 
     /* ==== Sale branch ==== */
@@ -76,7 +96,7 @@ public class RealEstateModels {
     @Data
     @NoArgsConstructor
     @AllArgsConstructor
-    public static class LandSale {
+    public static class LandSale implements Listing {
         private String id; // generated UUID
         private String whatUse;
         private SaleData data;
@@ -85,7 +105,7 @@ public class RealEstateModels {
     @Data
     @NoArgsConstructor
     @AllArgsConstructor
-    public static class OfficeSale {
+    public static class OfficeSale implements Listing {
         private String id;
         private int roomCount;
         private SaleData data;
@@ -94,7 +114,7 @@ public class RealEstateModels {
     @Data
     @NoArgsConstructor
     @AllArgsConstructor
-    public static class ShopSale {
+    public static class ShopSale implements Listing {
         private String id;
         private int roomCount; // Similar to office for simplicity
         private SaleData data;
@@ -103,7 +123,7 @@ public class RealEstateModels {
     @Data
     @NoArgsConstructor
     @AllArgsConstructor
-    public static class VillaSale {
+    public static class VillaSale implements Listing {
         private String id;
         private double yardArea;
         private SaleData data;
@@ -112,7 +132,7 @@ public class RealEstateModels {
     @Data
     @NoArgsConstructor
     @AllArgsConstructor
-    public static class ApartmentSale {
+    public static class ApartmentSale implements Listing {
         private String id;
         private int floorCount;
         private int roomCount;
@@ -148,7 +168,7 @@ public class RealEstateModels {
     @Data
     @NoArgsConstructor
     @AllArgsConstructor
-    public static class LandRent {
+    public static class LandRent implements Listing {
         private String id;
         private String whatUse;
         private RentData data;
@@ -157,7 +177,7 @@ public class RealEstateModels {
     @Data
     @NoArgsConstructor
     @AllArgsConstructor
-    public static class OfficeRent {
+    public static class OfficeRent implements Listing {
         private String id;
         private int roomCount;
         private RentData data;
@@ -166,7 +186,7 @@ public class RealEstateModels {
     @Data
     @NoArgsConstructor
     @AllArgsConstructor
-    public static class ShopRent {
+    public static class ShopRent implements Listing {
         private String id;
         private int roomCount; // Similar to office for simplicity
         private RentData data;
@@ -175,7 +195,7 @@ public class RealEstateModels {
     @Data
     @NoArgsConstructor
     @AllArgsConstructor
-    public static class VillaRent {
+    public static class VillaRent implements Listing {
         private String id;
         private double yardArea;
         private RentData data;
@@ -184,7 +204,7 @@ public class RealEstateModels {
     @Data
     @NoArgsConstructor
     @AllArgsConstructor
-    public static class ApartmentRent {
+    public static class ApartmentRent implements Listing {
         private String id;
         private int floorCount;
         private int roomCount;
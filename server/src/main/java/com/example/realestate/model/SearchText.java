@@ -0,0 +1,53 @@
+package com.example.realestate.model;
+
+import com.example.realestate.model.RealEstateModels.LandRent;
+import com.example.realestate.model.RealEstateModels.LandSale;
+
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Builds the lower-case text a keyword is matched against: id, owner, address, email, land usage,
+ * room count, floor count, yard area, area and price, each followed by a space.
+ */
+public final class SearchText {
+    private static final Attribute[] ITEM_ATTRIBUTES = {Attribute.ROOM_COUNT, Attribute.FLOOR_COUNT, Attribute.YARD_AREA};
+
+    private SearchText() {
+    }
+
+    /**
+     * Appends the searchable text of {@code item} to {@code out} without allocating, so a scan can
+     * reuse one builder for every listing.
+     *
+     * @return false when the listing has no data and therefore never matches a keyword
+     */
+    public static boolean append(Category category, Listing item, StringBuilder out) {
+        ListingData data = item.getData();
+        if (data == null) return false;
+        int start = out.length();
+        appendWord(out, item.getId());
+        appendWord(out, data.getOwnerFullName());
+        appendWord(out, data.getAddress());
+        appendWord(out, data.getEmail());
+        if (item instanceof LandSale land) appendWord(out, land.getWhatUse());
+        if (item instanceof LandRent land) appendWord(out, land.getWhatUse());
+        for (Attribute attribute : ITEM_ATTRIBUTES) {
+            ToDoubleFunction<Listing> reader = attribute.reader(category);
+            if (reader == null) continue;
+            double value = reader.applyAsDouble(item);
+            if (attribute.isIntegral()) out.append((int) value);
+            else out.append(value);
+            out.append(' ');
+        }
+        out.append(data.getArea()).append(' ');
+        out.append(data.price()).append(' ');
+        for (int i = start; i < out.length(); i++) {
+            out.setCharAt(i, Character.toLowerCase(out.charAt(i)));
+        }
+        return true;
+    }
+
+    private static void appendWord(StringBuilder out, String word) {
+        if (word != null) out.append(word).append(' ');
+    }
+}
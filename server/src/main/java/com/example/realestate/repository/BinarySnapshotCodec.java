@@ -0,0 +1,228 @@
+package com.example.realestate.repository;
+
+import com.example.realestate.model.Category;
+import com.example.realestate.model.Listing;
+import com.example.realestate.model.ListingData;
+import com.example.realestate.model.RealEstateModels.*;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compact binary snapshot of a {@link RealEstate}.
+ * <pre>
+ * header   : int magic "RESB", short version, int stringCount
+ * strings  : stringCount x (int byteLength, UTF-8 bytes)
+ * sections : int sectionCount, then per section
+ *            int categoryKey (string ref), int recordCount,
+ *            recordCount x (int length, record fields)
+ * </pre>
+ * Strings (ids, addresses, emails, owner names, land usage) are stored once in the string table and
+ * referenced by index, -1 meaning null. Records are length-prefixed so a reader can skip fields or
+ * sections it does not know. Coordinates are such a later field: a record whose data has them ends
+ * with the latitude and longitude, and a record without them ends after its other fields, which the
+ * reader recognizes by reaching the record's length and then leaves both coordinates null. The
+ * reader works on a memory-mapped view of the file, so the raw bytes never have to be copied onto
+ * the heap.
+ */
+public final class BinarySnapshotCodec {
+    private static final int MAGIC = 0x52455342; // "RESB"
+    private static final short VERSION = 1;
+
+    private BinarySnapshotCodec() {
+    }
+
+    public static void write(RealEstate data, OutputStream target) throws IOException {
+        Map<String, Integer> strings = new HashMap<>();
+        List<String> table = new ArrayList<>();
+        for (Category category : Category.values()) {
+            intern(category.key(), strings, table);
+            for (Listing item : category.listOf(data)) {
+                collectStrings(item, strings, table);
+            }
+        }
+
+        DataOutputStream out = new DataOutputStream(target);
+        out.writeInt(MAGIC);
+        out.writeShort(VERSION);
+        out.writeInt(table.size());
+        for (String s : table) {
+            byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+
+        Category[] categories = Category.values();
+        out.writeInt(categories.length);
+        ByteBuffer record = ByteBuffer.allocate(128);
+        for (Category category : categories) {
+            List<Listing> items = category.listOf(data);
+            out.writeInt(strings.get(category.key()));
+            out.writeInt(items.size());
+            for (Listing item : items) {
+                record.clear();
+                encode(category, item, strings, record);
+                out.writeInt(record.position());
+                out.write(record.array(), 0, record.position());
+            }
+        }
+        out.flush();
+    }
+
+    public static RealEstate read(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Snapshot " + path + " exceeds the 2 GB mapping limit");
+            }
+            MappedByteBuffer in = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (in.getInt() != MAGIC) throw new IOException(path + " is not a binary snapshot");
+            short version = in.getShort();
+            if (version != VERSION) throw new IOException("Unsupported snapshot version " + version + " in " + path);
+
+            String[] table = new String[in.getInt()];
+            for (int i = 0; i < table.length; i++) {
+                byte[] bytes = new byte[in.getInt()];
+                in.get(bytes);
+                table[i] = new String(bytes, StandardCharsets.UTF_8);
+            }
+
+            RealEstate data = new RealEstate();
+            int sections = in.getInt();
+            for (int s = 0; s < sections; s++) {
+                Category category = Category.fromKey(table[in.getInt()]);
+                int count = in.getInt();
+                List<Listing> items = category.listOf(data);
+                if (items instanceof ArrayList<Listing> list) list.ensureCapacity(count);
+                for (int r = 0; r < count; r++) {
+                    int length = in.getInt();
+                    int end = in.position() + length;
+                    items.add(decode(category, in, end, table));
+                    in.position(end);
+                }
+            }
+            return data;
+        } catch (RuntimeException e) {
+            throw new IOException("Corrupt binary snapshot " + path, e);
+        }
+    }
+
+    private static void collectStrings(Listing item, Map<String, Integer> strings, List<String> table) {
+        intern(item.getId(), strings, table);
+        if (item instanceof LandSale land) intern(land.getWhatUse(), strings, table);
+        if (item instanceof LandRent land) intern(land.getWhatUse(), strings, table);
+        ListingData d = item.getData();
+        if (d != null) {
+            intern(d.getAddress(), strings, table);
+            intern(d.getEmail(), strings, table);
+            intern(d.getOwnerFullName(), strings, table);
+        }
+    }
+
+    private static void intern(String s, Map<String, Integer> strings, List<String> table) {
+        if (s != null && !strings.containsKey(s)) {
+            strings.put(s, table.size());
+            table.add(s);
+        }
+    }
+
+    private static int ref(String s, Map<String, Integer> strings) {
+        return s == null ? -1 : strings.get(s);
+    }
+
+    private static String str(int ref, String[] table) {
+        return ref < 0 ? null : table[ref];
+    }
+
+    private static void encode(Category category, Listing item, Map<String, Integer> strings, ByteBuffer out) {
+        out.putInt(ref(item.getId(), strings));
+        switch (category) {
+            case SALE_LAND -> out.putInt(ref(((LandSale) item).getWhatUse(), strings));
+            case RENT_LAND -> out.putInt(ref(((LandRent) item).getWhatUse(), strings));
+            case SALE_OFFICE -> out.putInt(((OfficeSale) item).getRoomCount());
+            case RENT_OFFICE -> out.putInt(((OfficeRent) item).getRoomCount());
+            case SALE_SHOP -> out.putInt(((ShopSale) item).getRoomCount());
+            case RENT_SHOP -> out.putInt(((ShopRent) item).getRoomCount());
+            case SALE_VILLA -> out.putDouble(((VillaSale) item).getYardArea());
+            case RENT_VILLA -> out.putDouble(((VillaRent) item).getYardArea());
+            case SALE_APARTMENT -> out.putInt(((ApartmentSale) item).getFloorCount()).putInt(((ApartmentSale) item).getRoomCount());
+            case RENT_APARTMENT -> out.putInt(((ApartmentRent) item).getFloorCount()).putInt(((ApartmentRent) item).getRoomCount());
+        }
+        ListingData d = item.getData();
+        out.put((byte) (d == null ? 0 : 1));
+        if (d == null) return;
+        out.putInt(ref(d.getAddress(), strings)).putInt(ref(d.getEmail(), strings)).putInt(ref(d.getOwnerFullName(), strings));
+        out.putDouble(d.getArea());
+        if (category.isSale()) {
+            out.putDouble(((SaleData) d).getFullPrice());
+        } else {
+            RentData rent = (RentData) d;
+            out.putDouble(rent.getRentPrice()).putDouble(rent.getMortgagePrice());
+        }
+        putCoordinates(d, out);
+    }
+
+    private static void putCoordinates(ListingData d, ByteBuffer out) {
+        if (d.getLatitude() != null && d.getLongitude() != null) {
+            out.putDouble(d.getLatitude()).putDouble(d.getLongitude());
+        }
+    }
+
+    private static Listing decode(Category category, ByteBuffer in, int end, String[] table) {
+        String id = str(in.getInt(), table);
+        // The fields of the category come first, but every constructor also takes the data behind them
+        String whatUse = null;
+        int floors = 0, rooms = 0;
+        double yardArea = 0;
+        switch (category) {
+            case SALE_LAND, RENT_LAND -> whatUse = str(in.getInt(), table);
+            case SALE_OFFICE, RENT_OFFICE, SALE_SHOP, RENT_SHOP -> rooms = in.getInt();
+            case SALE_VILLA, RENT_VILLA -> yardArea = in.getDouble();
+            case SALE_APARTMENT, RENT_APARTMENT -> {
+                floors = in.getInt();
+                rooms = in.getInt();
+            }
+        }
+        ListingData d = in.get() == 0 ? null : decodeData(category, in, end, table);
+        return switch (category) {
+            case SALE_LAND -> new LandSale(id, whatUse, (SaleData) d);
+            case RENT_LAND -> new LandRent(id, whatUse, (RentData) d);
+            case SALE_OFFICE -> new OfficeSale(id, rooms, (SaleData) d);
+            case RENT_OFFICE -> new OfficeRent(id, rooms, (RentData) d);
+            case SALE_SHOP -> new ShopSale(id, rooms, (SaleData) d);
+            case RENT_SHOP -> new ShopRent(id, rooms, (RentData) d);
+            case SALE_VILLA -> new VillaSale(id, yardArea, (SaleData) d);
+            case RENT_VILLA -> new VillaRent(id, yardArea, (RentData) d);
+            case SALE_APARTMENT -> new ApartmentSale(id, floors, rooms, (SaleData) d);
+            case RENT_APARTMENT -> new ApartmentRent(id, floors, rooms, (RentData) d);
+        };
+    }
+
+    private static ListingData decodeData(Category category, ByteBuffer in, int end, String[] table) {
+        String address = str(in.getInt(), table);
+        String email = str(in.getInt(), table);
+        String owner = str(in.getInt(), table);
+        double area = in.getDouble();
+        if (category.isSale()) {
+            double fullPrice = in.getDouble();
+            Double latitude = in.position() < end ? in.getDouble() : null;
+            Double longitude = latitude != null ? in.getDouble() : null;
+            return new SaleData(address, email, area, fullPrice, owner, latitude, longitude);
+        }
+        double rentPrice = in.getDouble();
+        double mortgagePrice = in.getDouble();
+        Double latitude = in.position() < end ? in.getDouble() : null;
+        Double longitude = latitude != null ? in.getDouble() : null;
+        return new RentData(address, email, area, rentPrice, mortgagePrice, owner, latitude, longitude);
+    }
+}
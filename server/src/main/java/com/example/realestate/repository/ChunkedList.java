@@ -0,0 +1,251 @@
+package com.example.realestate.repository;
+
+import com.example.realestate.model.Listing;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Immutable list of listings stored in chunks of at most {@link #CHUNK_SIZE}. Every listing has a
+ * key that is unique within the list and ascending in list order, so it can be found by binary search.
+ * <p>
+ * An {@link Editor} copies only the chunk table and the chunks it changes; all other chunks are shared
+ * with the list it started from. Inserting or removing a listing therefore costs the same whether the
+ * list holds a thousand listings or a million.
+ */
+final class ChunkedList extends AbstractList<Listing> {
+    static final int CHUNK_SIZE = 512;
+
+    static final ChunkedList EMPTY = new ChunkedList(new long[0][], new Listing[0][], new long[0], new int[0], 0);
+
+    // Chunks are never empty, and keys[c].length == items[c].length
+    private final long[][] keys;
+    private final Listing[][] items;
+    // firsts[c] == keys[c][0] and ends[c] is the number of listings in chunks 0..c, kept in flat arrays
+    // so that lookups and edits do not have to touch every chunk
+    private final long[] firsts;
+    private final int[] ends;
+    private final long nextKey;
+
+    private ChunkedList(long[][] keys, Listing[][] items, long[] firsts, int[] ends, long nextKey) {
+        this.keys = keys;
+        this.items = items;
+        this.firsts = firsts;
+        this.ends = ends;
+        this.nextKey = nextKey;
+    }
+
+    /**
+     * Copies {@code list}; its listings get the keys 0 to size - 1.
+     */
+    static ChunkedList of(List<? extends Listing> list) {
+        Editor editor = EMPTY.edit();
+        for (Listing item : list) {
+            editor.add(item);
+        }
+        return editor.build();
+    }
+
+    Editor edit() {
+        return new Editor(this);
+    }
+
+    // The listing stored under this key, or null
+    Listing find(long key) {
+        int c = chunkOf(key);
+        if (c < 0) return null;
+        int i = Arrays.binarySearch(keys[c], key);
+        return i < 0 ? null : items[c][i];
+    }
+
+    @Override
+    public Listing get(int index) {
+        if (index < 0 || index >= size()) throw new IndexOutOfBoundsException(index);
+        int c = Arrays.binarySearch(ends, index + 1);
+        // ends is strictly ascending; a miss points at the first chunk ending after index
+        if (c < 0) c = -c - 1;
+        return items[c][index - (c == 0 ? 0 : ends[c - 1])];
+    }
+
+    @Override
+    public int size() {
+        return ends.length == 0 ? 0 : ends[ends.length - 1];
+    }
+
+    @Override
+    public Iterator<Listing> iterator() {
+        return new Iterator<>() {
+            private int chunk;
+            private int offset;
+
+            @Override
+            public boolean hasNext() {
+                return chunk < items.length;
+            }
+
+            @Override
+            public Listing next() {
+                if (chunk >= items.length) throw new NoSuchElementException();
+                Listing item = items[chunk][offset];
+                if (++offset == items[chunk].length) {
+                    chunk++;
+                    offset = 0;
+                }
+                return item;
+            }
+        };
+    }
+
+    // Last chunk whose first key is at most key, or -1
+    private int chunkOf(long key) {
+        int lo = 0, hi = keys.length - 1, found = -1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            if (firsts[mid] <= key) {
+                found = mid;
+                lo = mid + 1;
+            } else {
+                hi = mid - 1;
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Builds the next version of a list. Chunks are copied into full-size buffers the first time they
+     * are changed and edited in place from then on. Not thread-safe.
+     */
+    static final class Editor {
+        private long[][] keys;
+        private Listing[][] items;
+        private int[] sizes;
+        private boolean[] owned;
+        // Lowest key each chunk may hold: its first key when the edit started, as removals only shrink chunks
+        private long[] lows;
+        private int chunks;
+        private long nextKey;
+
+        private Editor(ChunkedList base) {
+            int n = base.keys.length;
+            int capacity = n + 1;
+            keys = Arrays.copyOf(base.keys, capacity);
+            items = Arrays.copyOf(base.items, capacity);
+            sizes = new int[capacity];
+            owned = new boolean[capacity];
+            lows = Arrays.copyOf(base.firsts, capacity);
+            for (int c = 0; c < n; c++) {
+                sizes[c] = base.ends[c] - (c == 0 ? 0 : base.ends[c - 1]);
+            }
+            chunks = n;
+            nextKey = base.nextKey;
+        }
+
+        /**
+         * Appends a listing and returns its key.
+         */
+        long add(Listing item) {
+            long key = nextKey++;
+            int c = chunks - 1;
+            if (c < 0 || sizes[c] == CHUNK_SIZE) {
+                c = newChunk(key);
+            } else {
+                own(c);
+            }
+            keys[c][sizes[c]] = key;
+            items[c][sizes[c]] = item;
+            sizes[c]++;
+            return key;
+        }
+
+        /**
+         * Removes the listing stored under this key and returns it, or returns null if there is none.
+         */
+        Listing remove(long key) {
+            int c = -1;
+            // Chunks are ordered by their lowest key; find the last one starting at or before key
+            int lo = 0, hi = chunks - 1;
+            while (lo <= hi) {
+                int mid = (lo + hi) >>> 1;
+                if (lows[mid] <= key) {
+                    c = mid;
+                    lo = mid + 1;
+                } else {
+                    hi = mid - 1;
+                }
+            }
+            if (c < 0) return null;
+            int i = Arrays.binarySearch(keys[c], 0, sizes[c], key);
+            if (i < 0) return null;
+            own(c);
+            Listing removed = items[c][i];
+            int tail = sizes[c] - i - 1;
+            System.arraycopy(keys[c], i + 1, keys[c], i, tail);
+            System.arraycopy(items[c], i + 1, items[c], i, tail);
+            items[c][--sizes[c]] = null;
+            return removed;
+        }
+
+        /**
+         * Returns the edited list. Empty chunks are dropped, and a changed chunk that fell below half
+         * its size is merged into the chunk before it when both fit into one.
+         */
+        ChunkedList build() {
+            long[][] outKeys = new long[chunks][];
+            Listing[][] outItems = new Listing[chunks][];
+            long[] firsts = new long[chunks];
+            int[] ends = new int[chunks];
+            int out = 0, total = 0;
+            for (int c = 0; c < chunks; c++) {
+                int n = sizes[c];
+                if (n == 0) continue;
+                if (!owned[c]) {
+                    outKeys[out] = keys[c];
+                    outItems[out] = items[c];
+                    firsts[out] = lows[c];
+                } else if (out > 0 && n < CHUNK_SIZE / 2 && ends[out - 1] - (out == 1 ? 0 : ends[out - 2]) + n <= CHUNK_SIZE) {
+                    out--;
+                    int m = ends[out] - (out == 0 ? 0 : ends[out - 1]);
+                    outKeys[out] = Arrays.copyOf(outKeys[out], m + n);
+                    outItems[out] = Arrays.copyOf(outItems[out], m + n);
+                    System.arraycopy(keys[c], 0, outKeys[out], m, n);
+                    System.arraycopy(items[c], 0, outItems[out], m, n);
+                } else {
+                    outKeys[out] = Arrays.copyOf(keys[c], n);
+                    outItems[out] = Arrays.copyOf(items[c], n);
+                    firsts[out] = keys[c][0];
+                }
+                total += n;
+                ends[out++] = total;
+            }
+            return new ChunkedList(Arrays.copyOf(outKeys, out), Arrays.copyOf(outItems, out),
+                    Arrays.copyOf(firsts, out), Arrays.copyOf(ends, out), nextKey);
+        }
+
+        private int newChunk(long low) {
+            if (chunks == keys.length) {
+                int capacity = chunks * 2;
+                keys = Arrays.copyOf(keys, capacity);
+                items = Arrays.copyOf(items, capacity);
+                sizes = Arrays.copyOf(sizes, capacity);
+                owned = Arrays.copyOf(owned, capacity);
+                lows = Arrays.copyOf(lows, capacity);
+            }
+            int c = chunks++;
+            keys[c] = new long[CHUNK_SIZE];
+            items[c] = new Listing[CHUNK_SIZE];
+            owned[c] = true;
+            lows[c] = low;
+            return c;
+        }
+
+        private void own(int c) {
+            if (owned[c]) return;
+            keys[c] = Arrays.copyOf(keys[c], CHUNK_SIZE);
+            items[c] = Arrays.copyOf(items[c], CHUNK_SIZE);
+            owned[c] = true;
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.example.realestate.repository;
+
+import com.example.realestate.model.Category;
+import com.example.realestate.model.Listing;
+
+import java.util.List;
+
+/**
+ * Receives every change of the dataset, in commit order, before the new version becomes visible
+ * to readers, and derives the index of each category from it. Indexes register one through
+ * {@link FileBackedRepository#setListener(CommitListener)}. What it returns is published in the
+ * {@link RealEstateSnapshot} together with the list it belongs to, so it must not change afterwards.
+ * <p>
+ * Callbacks run while the repository holds the affected write locks, so they must be quick and
+ * must not call back into the repository.
+ */
+public interface CommitListener {
+
+    /**
+     * The listener was just registered. Called with every category locked; returns the index of
+     * each category by ordinal.
+     */
+    Object[] reset(RealEstateSnapshot snapshot);
+
+    /**
+     * A batch of one category was logged and is about to be published. {@code inserted} is in list
+     * order and applied before {@code removed}. Returns the index of the category after the batch.
+     */
+    Object committed(Category category, List<Listing> inserted, List<Listing> removed);
+}
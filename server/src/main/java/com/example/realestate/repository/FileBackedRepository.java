@@ -1,61 +1,590 @@
 package com.example.realestate.repository;
 
+import com.example.realestate.model.Category;
+import com.example.realestate.model.Listing;
 import com.example.realestate.model.RealEstateModels.RealEstate;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.SerializationFeature;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.DependsOn;
 import org.springframework.stereotype.Repository;
 
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
 
+/**
+ * Keeps the whole dataset in memory, backed by a snapshot plus an append-only {@link MutationLog}.
+ * Mutations only append a record to the log; the snapshot is rewritten by periodic background compaction.
+ * Snapshots are JSON ({@code realestate.json}) or, when configured, the compact {@link BinarySnapshotCodec}
+ * format ({@code realestate.snap}); the JSON file is then only imported when no binary snapshot exists yet.
+ * Snapshot files are written and loaded through a crash-safe {@link SnapshotStore}. Log segments are
+ * kept for as long as any retained snapshot generation predates them, so loading an older generation
+ * still replays every mutation logged after it.
+ * <p>
+ * Readers never lock: they read an immutable {@link RealEstateSnapshot} through an atomic reference,
+ * and each committed batch publishes a new version that shares all untouched category lists.
+ * <p>
+ * Writers only lock the stripe of the category they change. Mutations queue on their stripe and the
+ * thread holding the stripe lock applies all of them in one batch: one copy of the category list, one
+ * log append, one published version. Durability is awaited afterwards through {@link GroupCommit},
+ * outside the stripe lock. Operations spanning all categories take every stripe lock in category order.
+ * The registered {@link CommitListener} sees each batch under its stripe lock and derives the index
+ * that is published together with it.
+ * <p>
+ * A batch is published before its fsync, so readers may see it before the writer is answered. If that
+ * fsync fails, the writer gets an error but the batch stays visible, so the repository turns read-only:
+ * every later write and every snapshot fails, and nothing that was reported as failed is written into a
+ * snapshot. Only a restart, which replays whatever part of the log reached the disk, makes it writable again.
+ * <p>
+ * Category lists are {@link ChunkedList}s, and a global index maps every id to its category and its
+ * key in that list, so finding or deleting a listing by id never scans a list.
+ * <p>
+ * Metrics: {@code realestate.lock.wait} (contended stripe lock acquisitions only),
+ * {@code realestate.wal.sync}, {@code realestate.wal.written}, {@code realestate.snapshot.persist}
+ * and {@code realestate.snapshot.size}. The same waits, fsyncs and snapshots are recorded as flight
+ * recorder events ({@link LockWaitEvent}, {@link LogSyncEvent}, {@link SnapshotPersistEvent}).
+ */
+// Started after the flight recording, so that loading and the first snapshot are part of it
+@DependsOn("flightRecording")
 @Repository
-public class FileBackedRepository implements InitializingBean {
+public class FileBackedRepository implements InitializingBean, DisposableBean {
+    private static final Logger log = LoggerFactory.getLogger(FileBackedRepository.class);
+
     private final ObjectMapper objectMapper;
-    private final Path dataPath;
+    private final SnapshotStore snapshots;
+    private final SnapshotStore jsonImport;
+    private final MutationLog mutationLog;
+    private final GroupCommit groupCommit;
+    private final int maxBatchSize;
+    private final int compactionThreshold;
+    private final long compactionIntervalMs;
+    private final ScheduledExecutorService compactor;
+    private final Stripe[] stripes = new Stripe[Category.values().length];
+    // Serializes snapshot writes
+    private final ReentrantLock compactionLock = new ReentrantLock();
+    private volatile CommitListener listener;
+    private final Timer stripeWait;
+    private final Timer allStripesWait;
+    private final String snapshotFormat;
+    private final Timer persistTimer;
+    private final DistributionSummary snapshotSize;
+
+    private final AtomicReference<RealEstateSnapshot> current = new AtomicReference<>(RealEstateSnapshot.of(new RealEstate(), 0));
+    private final AtomicLong mutationsSinceCompaction = new AtomicLong();
+    // Updated under the stripe lock of the listing's category, after the change is published
+    private final ConcurrentHashMap<String, Slot> slots = new ConcurrentHashMap<>();
+    // Snapshot versions count from 1 again on every start; this tells the runs apart
+    private final long epoch = System.currentTimeMillis();
+    // Segments rotated out by each of the last compactions, newest first; one group per retained
+    // snapshot generation, so that falling back to any of them can still replay what came after it
+    private final Deque<List<Path>> coveredSegments = new ArrayDeque<>();
+    private final int retainSnapshots;
 
-    private RealEstate cache = new RealEstate();
+    private record Slot(Category category, long key) {
+    }
 
-    public FileBackedRepository() {
-        this.objectMapper = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
-        this.dataPath = Path.of("data", "realestate.json");
+    private static final class Stripe {
+        final ReentrantLock lock = new ReentrantLock();
+        final ConcurrentLinkedQueue<PendingMutation> pending = new ConcurrentLinkedQueue<>();
+    }
+
+    public FileBackedRepository(@Value("${realestate.data-dir:data}") String dataDir,
+                                @Value("${realestate.wal.compaction-threshold:10000}") int compactionThreshold,
+                                @Value("${realestate.wal.compaction-interval-ms:60000}") long compactionIntervalMs,
+                                @Value("${realestate.persistence.durability:always}") String durability,
+                                @Value("${realestate.persistence.batch-interval-ms:5}") long batchIntervalMs,
+                                @Value("${realestate.persistence.max-batch-size:1024}") int maxBatchSize,
+                                @Value("${realestate.snapshot.format:json}") String snapshotFormat,
+                                @Value("${realestate.snapshot.retain:3}") int retainSnapshots,
+                                MeterRegistry meterRegistry) {
+        this.objectMapper = new ObjectMapper();
+        SnapshotStore json = new SnapshotStore(Path.of(dataDir, "realestate.json"), SnapshotStore.Format.JSON, retainSnapshots, objectMapper);
+        switch (snapshotFormat.trim().toLowerCase()) {
+            case "json" -> {
+                this.snapshots = json;
+                this.jsonImport = null;
+            }
+            case "binary" -> {
+                this.snapshots = new SnapshotStore(Path.of(dataDir, "realestate.snap"), SnapshotStore.Format.BINARY, retainSnapshots, objectMapper);
+                this.jsonImport = json;
+            }
+            default -> throw new IllegalArgumentException("Unknown snapshot format: " + snapshotFormat + ". Allowed: json, binary");
+        }
+        this.mutationLog = new MutationLog(Path.of(dataDir, "wal"));
+        Timer syncTimer = Timer.builder("realestate.wal.sync")
+                .description("Duration of the mutation log fsyncs that make writes durable")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.groupCommit = new GroupCommit(mutationLog, GroupCommit.Durability.parse(durability), batchIntervalMs, syncTimer);
+        FunctionCounter.builder("realestate.wal.written", mutationLog, MutationLog::getBytesWritten)
+                .description("Bytes appended to the mutation log")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        this.stripeWait = lockWaitTimer(meterRegistry, "category");
+        this.allStripesWait = lockWaitTimer(meterRegistry, "all");
+        this.snapshotFormat = snapshotFormat.trim().toLowerCase();
+        this.persistTimer = Timer.builder("realestate.snapshot.persist")
+                .description("Duration of a full snapshot: log rotation, serialization, write, fsync and rename")
+                .tag("format", this.snapshotFormat)
+                .register(meterRegistry);
+        this.snapshotSize = DistributionSummary.builder("realestate.snapshot.size")
+                .description("Bytes written per snapshot")
+                .baseUnit("bytes")
+                .tag("format", this.snapshotFormat)
+                .register(meterRegistry);
+        this.retainSnapshots = Math.max(0, retainSnapshots);
+        this.maxBatchSize = Math.max(1, maxBatchSize);
+        this.compactionThreshold = compactionThreshold;
+        this.compactionIntervalMs = compactionIntervalMs;
+        this.compactor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "snapshot-compactor");
+            t.setDaemon(true);
+            return t;
+        });
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new Stripe();
+        }
+    }
+
+    private static Timer lockWaitTimer(MeterRegistry meterRegistry, String scope) {
+        return Timer.builder("realestate.lock.wait")
+                .description("Time writers waited for category locks held by other writers")
+                .tag("scope", scope)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
     }
 
     @Override
     public void afterPropertiesSet() throws Exception {
-        if (!Files.exists(dataPath.getParent())) {
-            Files.createDirectories(dataPath.getParent());
+        Files.createDirectories(snapshots.primary().toAbsolutePath().getParent());
+        long started = System.nanoTime();
+        SnapshotStore.Loaded loaded = snapshots.load();
+        if (loaded == null && jsonImport != null) {
+            loaded = jsonImport.load();
+        }
+        RealEstateSnapshot base = RealEstateSnapshot.of(loaded == null ? new RealEstate() : loaded.data(), 1);
+        indexIds(base);
+
+        // Re-apply everything logged after the snapshot was written. Replay is idempotent, so records
+        // that were already folded into the snapshot by an interrupted compaction are harmless.
+        Map<Category, ChunkedList.Editor> editors = new EnumMap<>(Category.class);
+        long[] replayed = new long[1];
+        mutationLog.replay(entry -> {
+            apply(entry, editors.computeIfAbsent(entry.category(), c -> base.chunksOf(c).edit()));
+            replayed[0]++;
+        });
+        Map<Category, ChunkedList> replayedLists = new EnumMap<>(Category.class);
+        editors.forEach((category, editor) -> replayedLists.put(category, editor.build()));
+        current.set(replayedLists.isEmpty() ? base : base.with(replayedLists, Map.of()));
+        mutationLog.rotate();
+        log.info("Loaded {} listings from {} and {} log records in {} ms",
+                slots.size(), loaded == null ? "no snapshot" : loaded.source(), replayed[0], TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+
+        if (!snapshots.exists() || replayed[0] > 0) {
+            persist();
+        }
+        compactor.scheduleWithFixedDelay(this::compactIfNeeded, compactionIntervalMs, compactionIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void destroy() throws Exception {
+        compactor.shutdown();
+        compactor.awaitTermination(10, TimeUnit.SECONDS);
+        lockAll();
+        try {
+            mutationLog.close();
+        } finally {
+            unlockAll();
+        }
+    }
+
+    /**
+     * Returns the current data without any locking. The returned tree is immutable; writers publish
+     * new versions instead of modifying it.
+     */
+    public RealEstate get() {
+        return current.get().getData();
+    }
+
+    public RealEstateSnapshot snapshot() {
+        return current.get();
+    }
+
+    /**
+     * Start time of this repository. Together with a snapshot version it identifies a state of the
+     * data across restarts.
+     */
+    public long getEpoch() {
+        return epoch;
+    }
+
+    /**
+     * Returns the listing with this id and its category from the current version, or null.
+     */
+    public StoredListing find(String id) {
+        return find(current.get(), id);
+    }
+
+    /**
+     * Returns the listings with these ids that exist, in the order of {@code ids}.
+     */
+    public List<StoredListing> findAll(Collection<String> ids) {
+        RealEstateSnapshot snapshot = current.get();
+        List<StoredListing> found = new ArrayList<>(ids.size());
+        for (String id : ids) {
+            StoredListing listing = find(snapshot, id);
+            if (listing != null) found.add(listing);
+        }
+        return found;
+    }
+
+    // The index can be a step ahead of or behind the snapshot, so the snapshot has the final say
+    private StoredListing find(RealEstateSnapshot snapshot, String id) {
+        Slot slot = slots.get(id);
+        if (slot == null) return null;
+        Listing item = snapshot.chunksOf(slot.category()).find(slot.key());
+        return item != null && id.equals(item.getId()) ? new StoredListing(slot.category(), item) : null;
+    }
+
+    /**
+     * Registers the listener and hands it the current snapshot, which is republished with the indexes
+     * it returns; it then sees every later commit.
+     */
+    public void setListener(CommitListener listener) {
+        lockAll();
+        try {
+            // Every stripe is locked, so no other writer can publish in between
+            current.set(current.get().withIndexes(listener.reset(current.get())));
+            this.listener = listener;
+        } finally {
+            unlockAll();
+        }
+    }
+
+    public void insert(Category category, Listing item) {
+        submit(new PendingMutation(MutationLog.Op.INSERT, category, item.getId(), item));
+    }
+
+    public boolean delete(Category category, String id) {
+        return submit(new PendingMutation(MutationLog.Op.DELETE, category, id, null));
+    }
+
+    /**
+     * Inserts listings of any number of categories as one commit: one log append, one published
+     * version and one wait for durability. Readers see either none or all of them.
+     */
+    public void insertAll(Map<Category, List<Listing>> batch) {
+        List<MutationLog.Entry> entries = new ArrayList<>();
+        batch.forEach((category, items) -> {
+            for (Listing item : items) {
+                entries.add(MutationLog.Entry.insert(category, item.getId(), toJson(item)));
+            }
+        });
+        if (entries.isEmpty()) return;
+        long lastSeq;
+        lockAll();
+        try {
+            checkWritable();
+            RealEstateSnapshot base = current.get();
+            Map<Category, ChunkedList> replaced = new EnumMap<>(Category.class);
+            Map<String, Slot> added = new HashMap<>();
+            batch.forEach((category, items) -> {
+                if (items.isEmpty()) return;
+                ChunkedList.Editor editor = base.chunksOf(category).edit();
+                for (Listing item : items) {
+                    added.put(item.getId(), new Slot(category, editor.add(item)));
+                }
+                replaced.put(category, editor.build());
+            });
+            lastSeq = mutationLog.append(entries);
+            Map<Category, Object> indexes = new EnumMap<>(Category.class);
+            CommitListener listener = this.listener;
+            if (listener != null) {
+                for (Category category : replaced.keySet()) {
+                    indexes.put(category, listener.committed(category, batch.get(category), List.of()));
+                }
+            }
+            // Every stripe is locked, so no other writer can publish in between
+            current.set(base.with(replaced, indexes));
+            slots.putAll(added);
+            countMutations(entries.size());
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to persist data", e);
+        } finally {
+            unlockAll();
+        }
+        groupCommit.awaitDurable(lastSeq);
+    }
+
+    private boolean submit(PendingMutation mutation) {
+        Stripe stripe = stripes[mutation.category.ordinal()];
+        stripe.pending.add(mutation);
+        if (!stripe.lock.tryLock()) {
+            LockWaitEvent event = new LockWaitEvent();
+            event.begin();
+            long started = System.nanoTime();
+            stripe.lock.lock();
+            stripeWait.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+            event.end();
+            if (event.shouldCommit()) {
+                event.scope = mutation.category.name();
+                event.commit();
+            }
+        }
+        try {
+            // The previous holder of the lock may already have applied this mutation in its batch
+            while (!mutation.done) {
+                applyPending(mutation.category, stripe);
+            }
+        } finally {
+            stripe.lock.unlock();
+        }
+        if (mutation.failure != null) throw mutation.failure;
+        if (mutation.applied) groupCommit.awaitDurable(mutation.seq);
+        return mutation.applied;
+    }
+
+    // Called with the stripe lock held. Mutations are applied to a private copy of the category list,
+    // which is published only after the batch has been appended to the log.
+    private void applyPending(Category category, Stripe stripe) {
+        List<PendingMutation> batch = new ArrayList<>();
+        PendingMutation next;
+        while (batch.size() < maxBatchSize && (next = stripe.pending.poll()) != null) {
+            batch.add(next);
+        }
+        ChunkedList.Editor items = current.get().chunksOf(category).edit();
+        List<MutationLog.Entry> entries = new ArrayList<>(batch.size());
+        List<PendingMutation> changed = new ArrayList<>(batch.size());
+        List<Listing> inserted = new ArrayList<>();
+        List<Listing> removed = new ArrayList<>();
+        // Keys of the listings inserted by this batch, which are not in the id index yet
+        Map<String, Long> added = new HashMap<>();
+        try {
+            checkWritable();
+            for (PendingMutation p : batch) {
+                switch (p.op) {
+                    case INSERT -> {
+                        entries.add(MutationLog.Entry.insert(category, p.id, toJson(p.item)));
+                        added.put(p.id, items.add(p.item));
+                        inserted.add(p.item);
+                        changed.add(p);
+                    }
+                    case DELETE -> {
+                        Long key = added.get(p.id);
+                        if (key == null) {
+                            Slot slot = slots.get(p.id);
+                            if (slot != null && slot.category() == category) key = slot.key();
+                        }
+                        Listing item = key == null ? null : items.remove(key);
+                        if (item != null) {
+                            entries.add(MutationLog.Entry.delete(category, p.id));
+                            removed.add(item);
+                            changed.add(p);
+                        }
+                    }
+                }
+            }
+            if (!entries.isEmpty()) {
+                long lastSeq = mutationLog.append(entries);
+                CommitListener listener = this.listener;
+                publish(category, items.build(), listener == null ? null : listener.committed(category, inserted, removed));
+                added.forEach((id, key) -> slots.put(id, new Slot(category, key)));
+                removed.forEach(item -> slots.remove(item.getId()));
+                for (PendingMutation p : changed) {
+                    p.applied = true;
+                    p.seq = lastSeq;
+                }
+                countMutations(entries.size());
+            }
+        } catch (IOException | RuntimeException e) {
+            RuntimeException failure = e instanceof RuntimeException r ? r : new RuntimeException("Failed to persist data", e);
+            batch.forEach(p -> p.failure = failure);
+        } finally {
+            batch.forEach(p -> p.done = true);
+        }
+    }
+
+    // Writers of other categories publish concurrently, so retry on top of whatever version won
+    private void publish(Category category, ChunkedList items, Object index) {
+        Map<Category, Object> indexes = new EnumMap<>(Category.class);
+        if (index != null) indexes.put(category, index);
+        RealEstateSnapshot base;
+        do {
+            base = current.get();
+        } while (!current.compareAndSet(base, base.with(Map.of(category, items), indexes)));
+    }
+
+    // Once an fsync failed, published versions may hold writes that were reported as failed
+    private void checkWritable() {
+        IOException failure = groupCommit.getFailure();
+        if (failure != null) {
+            throw new IllegalStateException("Writes are disabled since an fsync of the mutation log failed; restart the server", failure);
+        }
+    }
+
+    private void countMutations(int count) {
+        long total = mutationsSinceCompaction.addAndGet(count);
+        if (total >= compactionThreshold && total - count < compactionThreshold) {
+            compactor.execute(this::compactIfNeeded);
+        }
+    }
+
+    // Rebuilds the id index from a snapshot built by RealEstateSnapshot.of, whose keys are list positions
+    private void indexIds(RealEstateSnapshot snapshot) {
+        slots.clear();
+        for (Category category : Category.values()) {
+            long key = 0;
+            for (Listing item : snapshot.listOf(category)) {
+                slots.put(item.getId(), new Slot(category, key++));
+            }
+        }
+    }
+
+    // Stripes are always locked in category order, so operations spanning categories cannot deadlock
+    private void lockAll() {
+        LockWaitEvent event = null;
+        long started = 0;
+        for (Stripe stripe : stripes) {
+            if (stripe.lock.tryLock()) continue;
+            if (event == null) {
+                event = new LockWaitEvent();
+                event.begin();
+                started = System.nanoTime();
+            }
+            stripe.lock.lock();
+        }
+        if (event == null) return;
+        allStripesWait.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        event.end();
+        if (event.shouldCommit()) {
+            event.scope = "all";
+            event.commit();
         }
-        if (Files.exists(dataPath)) {
+    }
+
+    private void unlockAll() {
+        for (int i = stripes.length - 1; i >= 0; i--) {
+            stripes[i].lock.unlock();
+        }
+    }
+
+    /**
+     * Writes a full snapshot and drops the log segments that only the oldest retained snapshot needed.
+     * Writers are only blocked while the log is rotated; the snapshot itself is serialized from an
+     * immutable version while new mutations keep being committed. Fails once an fsync of the log failed.
+     */
+    public void persist() {
+        compactionLock.lock();
+        SnapshotPersistEvent event = new SnapshotPersistEvent();
+        event.begin();
+        long started = System.nanoTime();
+        try {
+            RealEstateSnapshot snapshot;
+            List<Path> covered;
+            // With every stripe held, each record in the old segments is part of the captured version
+            lockAll();
+            try {
+                checkWritable();
+                covered = mutationLog.rotate();
+                snapshot = current.get();
+                mutationsSinceCompaction.set(0);
+            } finally {
+                unlockAll();
+            }
+            long size;
             try {
-                cache = objectMapper.readValue(Files.readAllBytes(dataPath), RealEstate.class);
+                size = snapshots.write(snapshot.getData());
             } catch (IOException e) {
-                cache = new RealEstate();
+                mutationsSinceCompaction.incrementAndGet();
+                throw e;
             }
-        } else {
-            persist();
+            for (List<Path> group : coveredSegments) {
+                covered.removeAll(group);
+            }
+            coveredSegments.addFirst(covered);
+            while (coveredSegments.size() > retainSnapshots) {
+                mutationLog.delete(coveredSegments.removeLast());
+            }
+            persistTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+            snapshotSize.record(size);
+            event.end();
+            if (event.shouldCommit()) {
+                event.format = snapshotFormat;
+                event.version = snapshot.getVersion();
+                event.bytes = size;
+                event.commit();
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to persist data", e);
+        } finally {
+            compactionLock.unlock();
         }
     }
 
-    public synchronized RealEstate get() {
-        return cache;
+    private void compactIfNeeded() {
+        try {
+            if (mutationsSinceCompaction.get() > 0) persist();
+        } catch (RuntimeException e) {
+            log.error("Background compaction failed", e);
+        }
     }
 
-    public synchronized void set(RealEstate realEstate) {
-        this.cache = realEstate;
-        persist();
+    private void apply(MutationLog.Entry entry, ChunkedList.Editor items) {
+        switch (entry.op()) {
+            case INSERT -> {
+                if (!slots.containsKey(entry.id())) {
+                    slots.put(entry.id(), new Slot(entry.category(), items.add(fromJson(entry))));
+                }
+            }
+            case DELETE -> {
+                Slot slot = slots.get(entry.id());
+                if (slot != null && slot.category() == entry.category()) {
+                    slots.remove(entry.id());
+                    items.remove(slot.key());
+                }
+            }
+        }
     }
 
-    public synchronized void persist() {
+    private byte[] toJson(Listing item) {
         try {
-            byte[] bytes = objectMapper.writeValueAsBytes(cache);
-            Files.write(dataPath, bytes, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+            return objectMapper.writeValueAsBytes(item);
         } catch (IOException e) {
             throw new RuntimeException("Failed to persist data", e);
         }
     }
+
+    private Listing fromJson(MutationLog.Entry entry) {
+        try {
+            return objectMapper.readValue(entry.payload(), entry.category().getItemType());
+        } catch (IOException e) {
+            throw new IllegalStateException("Corrupt mutation log record " + entry.seq(), e);
+        }
+    }
 }
 
 
@@ -0,0 +1,116 @@
+package com.example.realestate.repository;
+
+import io.micrometer.core.instrument.Timer;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Group commit of {@link MutationLog} syncs.
+ * <p>
+ * Writers append their records first and then wait here for their sequence number to become durable.
+ * The first waiter becomes the leader and issues one fsync covering everything appended so far; the
+ * others wait for it and are released together, so concurrent writers share a single fsync. Each
+ * fsync is timed and recorded as a {@link LogSyncEvent}.
+ * <p>
+ * A failed fsync is final: nothing appended after the last successful one is known to be durable, so
+ * every later wait fails with the same cause.
+ */
+class GroupCommit {
+
+    public enum Durability {
+        // fsync before acknowledging; concurrent writers share the fsync
+        ALWAYS,
+        // the leader waits one batch interval before its fsync to gather more writers
+        BATCH,
+        // acknowledge once the records are handed to the OS page cache
+        OS_BUFFERED;
+
+        public static Durability parse(String value) {
+            return switch (value.trim().toLowerCase()) {
+                case "always" -> ALWAYS;
+                case "batch" -> BATCH;
+                case "os-buffered" -> OS_BUFFERED;
+                default -> throw new IllegalArgumentException("Unknown durability mode: " + value + ". Allowed: always, batch, os-buffered");
+            };
+        }
+    }
+
+    private final MutationLog mutationLog;
+    private final Durability durability;
+    private final long batchIntervalNanos;
+    private final Timer syncTimer;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition synced = lock.newCondition();
+
+    private long durableSeq;
+    private boolean syncing;
+    private volatile IOException failure;
+
+    /**
+     * @param syncTimer records the duration of every fsync
+     */
+    GroupCommit(MutationLog mutationLog, Durability durability, long batchIntervalMs, Timer syncTimer) {
+        this.mutationLog = mutationLog;
+        this.durability = durability;
+        this.batchIntervalNanos = TimeUnit.MILLISECONDS.toNanos(batchIntervalMs);
+        this.syncTimer = syncTimer;
+    }
+
+    /**
+     * The cause of the first failed fsync, or null while every fsync succeeded.
+     */
+    IOException getFailure() {
+        return failure;
+    }
+
+    /**
+     * Blocks until the record with the given sequence number is durable according to the configured mode.
+     */
+    void awaitDurable(long seq) {
+        if (durability == Durability.OS_BUFFERED) return;
+        lock.lock();
+        try {
+            while (durableSeq < seq) {
+                if (failure != null) throw new RuntimeException("Failed to persist data", failure);
+                if (syncing) {
+                    synced.awaitUninterruptibly();
+                    continue;
+                }
+                syncing = true;
+                long from = durableSeq, target = 0;
+                IOException syncFailure = null;
+                lock.unlock();
+                try {
+                    if (durability == Durability.BATCH) LockSupport.parkNanos(batchIntervalNanos);
+                    target = mutationLog.getLastSeq();
+                    LogSyncEvent event = new LogSyncEvent();
+                    event.begin();
+                    long started = System.nanoTime();
+                    mutationLog.sync();
+                    syncTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+                    event.end();
+                    if (event.shouldCommit()) {
+                        event.sequence = target;
+                        event.records = target - from;
+                        event.commit();
+                    }
+                } catch (IOException e) {
+                    syncFailure = e;
+                } finally {
+                    lock.lock();
+                    if (syncFailure != null) failure = syncFailure;
+                    syncing = false;
+                    synced.signalAll();
+                }
+                if (syncFailure != null) throw new RuntimeException("Failed to persist data", syncFailure);
+                durableSeq = Math.max(durableSeq, target);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.example.realestate.repository;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight recorder event of a writer waiting for category locks held by other writers. Uncontended
+ * acquisitions are not recorded.
+ */
+@Name("com.example.realestate.LockWait")
+@Label("Category Lock Wait")
+@Category({"Real Estate", "Persistence"})
+@Description("A writer blocked on the lock of a category, or on the locks of all categories")
+@StackTrace(false)
+class LockWaitEvent extends Event {
+
+    @Label("Scope")
+    @Description("The category waited for, or all")
+    String scope;
+}
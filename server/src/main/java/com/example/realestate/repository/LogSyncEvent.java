@@ -0,0 +1,27 @@
+package com.example.realestate.repository;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight recorder event of one mutation log fsync, shared by every writer of its commit group.
+ */
+@Name("com.example.realestate.LogSync")
+@Label("Mutation Log Sync")
+@Category({"Real Estate", "Persistence"})
+@Description("An fsync of the mutation log that made appended records durable")
+@StackTrace(false)
+class LogSyncEvent extends Event {
+
+    @Label("Durable Sequence")
+    @Description("Sequence number of the last record covered by the sync")
+    long sequence;
+
+    @Label("Records")
+    @Description("Records that became durable with this sync")
+    long records;
+}
@@ -0,0 +1,329 @@
+package com.example.realestate.repository;
+
+import com.example.realestate.model.Category;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only write-ahead log of listing mutations.
+ * <p>
+ * The log is split into segment files named after the first sequence number they may contain.
+ * Every record is laid out as {@code [int length][body][int crc32(body)]}, where the body holds
+ * the sequence number, the operation, the category key, the listing id and (for inserts) the
+ * listing serialized as JSON. Sequence numbers run on without gaps across segments.
+ * <p>
+ * Replay only cuts off a torn record at the tail of the newest segment, or the abandoned tail of an
+ * older one that the next segment picks up from without a gap, as a failed append leaves it. Any other
+ * bad record or gap in the sequence means acknowledged records were lost, and replay fails instead of
+ * cutting them off.
+ */
+public class MutationLog implements Closeable {
+    private static final Logger log = LoggerFactory.getLogger(MutationLog.class);
+
+    private static final String SEGMENT_PREFIX = "mutations-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final int MAX_RECORD_SIZE = 64 * 1024 * 1024;
+
+    public enum Op { INSERT, DELETE }
+
+    /**
+     * A logged mutation. Entries handed to {@link #append(List)} get their sequence number assigned there.
+     */
+    public record Entry(long seq, Op op, Category category, String id, byte[] payload) {
+        public static Entry insert(Category category, String id, byte[] payload) {
+            return new Entry(0, Op.INSERT, category, id, payload);
+        }
+
+        public static Entry delete(Category category, String id) {
+            return new Entry(0, Op.DELETE, category, id, null);
+        }
+    }
+
+    private final Path dir;
+    // Guards the channel; a lock rather than a monitor, so that a virtual thread writing or syncing
+    // under it does not pin its carrier thread
+    private final ReentrantLock lock = new ReentrantLock();
+    private FileChannel channel;
+    private Path currentSegment;
+    // Set when a failed append could not be cut off again; the next append starts a new segment first
+    private IOException failure;
+    private volatile long lastSeq;
+    // Bytes appended since startup; written under the lock
+    private volatile long bytesWritten;
+
+    public MutationLog(Path dir) {
+        this.dir = dir;
+    }
+
+    public Path getCurrentSegment() {
+        return currentSegment;
+    }
+
+    // Sequence number of the last appended (not necessarily synced) record
+    public long getLastSeq() {
+        return lastSeq;
+    }
+
+    public long getBytesWritten() {
+        return bytesWritten;
+    }
+
+    /**
+     * Feeds every valid record of every segment to the consumer, oldest first.
+     *
+     * @return the sequence number of the last record, or 0 for an empty log
+     * @throws IOException also when a segment is corrupt before its tail or the sequence has a gap
+     */
+    public long replay(Consumer<Entry> consumer) throws IOException {
+        lock.lock();
+        try {
+            List<Path> segments = segments();
+            long last = 0;
+            for (int i = 0; i < segments.size(); i++) {
+                Path segment = segments.get(i);
+                long first = firstSeq(segment);
+                if (i > 0 && first != last + 1) {
+                    throw new IOException("Mutation log segment " + segment + " starts at " + first + ", but the previous one ends at " + last);
+                }
+                long next = i + 1 < segments.size() ? firstSeq(segments.get(i + 1)) : 0;
+                last = replaySegment(segment, first, next, consumer);
+            }
+            lastSeq = Math.max(lastSeq, last);
+            return last;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // next is the first sequence number of the following segment, or 0 for the newest one
+    private long replaySegment(Path segment, long first, long next, Consumer<Entry> consumer) throws IOException {
+        long last = first - 1;
+        try (FileChannel in = FileChannel.open(segment, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long size = in.size();
+            long position = 0;
+            ByteBuffer header = ByteBuffer.allocate(Integer.BYTES);
+            while (position < size) {
+                header.clear();
+                if (readFully(in, header, position) < Integer.BYTES) break;
+                int length = header.getInt(0);
+                if (length <= 0 || length > MAX_RECORD_SIZE || position + Integer.BYTES * 2L + length > size) break;
+
+                ByteBuffer record = ByteBuffer.allocate(length + Integer.BYTES);
+                readFully(in, record, position + Integer.BYTES);
+                byte[] body = new byte[length];
+                record.get(0, body);
+                if (crc(body) != record.getInt(length)) break;
+
+                Entry entry = decode(body);
+                if (entry.seq() != last + 1) {
+                    throw new IOException("Mutation log record at offset " + position + " of " + segment + " has seq " + entry.seq() + ", expected " + (last + 1));
+                }
+                consumer.accept(entry);
+                last = entry.seq();
+                position += Integer.BYTES * 2L + length;
+            }
+            if (position < size) {
+                // An older segment may only end in a tail that was never acknowledged: the next one then
+                // goes on with the sequence number the bad record would have had
+                if (next != 0 && next != last + 1) {
+                    throw new IOException("Mutation log segment " + segment + " is corrupt at offset " + position
+                            + " (seq " + (last + 1) + "), but the next segment starts at " + next);
+                }
+                log.warn("Truncating torn tail of {} at offset {} ({} bytes dropped)", segment, position, size - position);
+                in.truncate(position);
+                in.force(true);
+            }
+        }
+        return last;
+    }
+
+    /**
+     * Starts a fresh segment; records appended afterwards go to the new file.
+     *
+     * @return the segments that precede the new one and become obsolete once a snapshot covers them
+     */
+    public List<Path> rotate() throws IOException {
+        lock.lock();
+        try {
+            long nextSeq = lastSeq + 1;
+            List<Path> previous = segments();
+            if (channel != null) {
+                channel.force(false);
+                channel.close();
+            }
+            Files.createDirectories(dir);
+            currentSegment = dir.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, nextSeq, SEGMENT_SUFFIX));
+            channel = FileChannel.open(currentSegment, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+            // A torn tail left in an older segment is cut off by replay, which then goes on with this one
+            failure = null;
+            previous.remove(currentSegment);
+            return previous;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Appends the entries with a single write, numbering them in log order; durability is left to {@link #sync()}.
+     * A write that fails is cut off again, so that no later record lands behind a torn one, which
+     * replay would drop together with everything after it.
+     *
+     * @return the sequence number of the last entry
+     */
+    public long append(List<Entry> entries) throws IOException {
+        lock.lock();
+        try {
+            if (failure != null) rotate();
+            if (entries.isEmpty()) return lastSeq;
+            List<byte[]> bodies = new ArrayList<>(entries.size());
+            int size = 0;
+            long seq = lastSeq;
+            for (Entry entry : entries) {
+                byte[] body = encode(++seq, entry);
+                bodies.add(body);
+                size += body.length + Integer.BYTES * 2;
+            }
+            ByteBuffer buffer = ByteBuffer.allocate(size);
+            for (byte[] body : bodies) {
+                buffer.putInt(body.length).put(body).putInt(crc(body));
+            }
+            buffer.flip();
+            long start = channel.size();
+            try {
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            } catch (IOException e) {
+                discardFrom(start, e);
+                throw e;
+            }
+            lastSeq = seq;
+            bytesWritten += size;
+            return seq;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void discardFrom(long size, IOException cause) {
+        try {
+            channel.truncate(size);
+        } catch (IOException e) {
+            cause.addSuppressed(e);
+            failure = cause;
+            log.error("Could not cut a failed append off {}; the next append starts a new segment", currentSegment, e);
+        }
+    }
+
+    public void sync() throws IOException {
+        lock.lock();
+        try {
+            channel.force(false);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void delete(List<Path> segments) throws IOException {
+        for (Path segment : segments) {
+            Files.deleteIfExists(segment);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            if (channel != null) {
+                channel.force(false);
+                channel.close();
+                channel = null;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private List<Path> segments() throws IOException {
+        if (!Files.isDirectory(dir)) return new ArrayList<>();
+        try (Stream<Path> files = Files.list(dir)) {
+            return new ArrayList<>(files
+                    .filter(p -> {
+                        String name = p.getFileName().toString();
+                        return name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX);
+                    })
+                    .sorted()
+                    .toList());
+        }
+    }
+
+    private static long firstSeq(Path segment) throws IOException {
+        String name = segment.getFileName().toString();
+        try {
+            return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+        } catch (NumberFormatException e) {
+            throw new IOException("Unexpected mutation log segment name: " + segment, e);
+        }
+    }
+
+    private static byte[] encode(long seq, Entry entry) {
+        byte[] category = entry.category().key().getBytes(StandardCharsets.UTF_8);
+        byte[] id = entry.id().getBytes(StandardCharsets.UTF_8);
+        byte[] payload = entry.payload() == null ? new byte[0] : entry.payload();
+        ByteBuffer body = ByteBuffer.allocate(Long.BYTES + 1 + Integer.BYTES * 3 + category.length + id.length + payload.length);
+        body.putLong(seq);
+        body.put((byte) entry.op().ordinal());
+        body.putInt(category.length).put(category);
+        body.putInt(id.length).put(id);
+        body.putInt(payload.length).put(payload);
+        return body.array();
+    }
+
+    private static Entry decode(byte[] bytes) {
+        ByteBuffer body = ByteBuffer.wrap(bytes);
+        long seq = body.getLong();
+        Op op = Op.values()[body.get()];
+        Category category = Category.fromKey(readString(body));
+        String id = readString(body);
+        byte[] payload = new byte[body.getInt()];
+        body.get(payload);
+        return new Entry(seq, op, category, id, payload);
+    }
+
+    private static String readString(ByteBuffer body) {
+        byte[] bytes = new byte[body.getInt()];
+        body.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static int crc(byte[] body) {
+        CRC32 crc = new CRC32();
+        crc.update(body);
+        return (int) crc.getValue();
+    }
+
+    private static int readFully(FileChannel in, ByteBuffer buffer, long position) throws IOException {
+        int total = 0;
+        while (buffer.hasRemaining()) {
+            int n = in.read(buffer, position + total);
+            if (n < 0) break;
+            total += n;
+        }
+        return total;
+    }
+}
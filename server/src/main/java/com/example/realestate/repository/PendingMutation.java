@@ -0,0 +1,28 @@
+package com.example.realestate.repository;
+
+import com.example.realestate.model.Category;
+import com.example.realestate.model.Listing;
+
+/**
+ * A mutation queued on its category stripe. Whichever thread holds the stripe lock applies every
+ * queued mutation of that category in one batch and fills in the outcome.
+ */
+class PendingMutation {
+    final MutationLog.Op op;
+    final Category category;
+    final String id;
+    final Listing item;
+
+    // Written by the combining thread under the stripe lock, read by the owner after taking that lock
+    boolean done;
+    boolean applied;
+    long seq;
+    RuntimeException failure;
+
+    PendingMutation(MutationLog.Op op, Category category, String id, Listing item) {
+        this.op = op;
+        this.category = category;
+        this.id = id;
+        this.item = item;
+    }
+}
@@ -0,0 +1,95 @@
+package com.example.realestate.repository;
+
+import com.example.realestate.model.Category;
+import com.example.realestate.model.Listing;
+import com.example.realestate.model.RealEstateModels.RealEstate;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable, versioned view of the whole dataset.
+ * <p>
+ * Every category list is an immutable {@link ChunkedList}. A new version replaces only the lists of
+ * the categories it touched, which in turn share all untouched chunks with their predecessors, so
+ * readers can keep iterating an old version while writers publish new ones.
+ * <p>
+ * Next to each list the snapshot carries what the {@link CommitListener} derived from it, such as the
+ * index of the category, so a reader always finds the two at the same version.
+ */
+public final class RealEstateSnapshot {
+    private final long version;
+    private final long[] categoryVersions;
+    private final RealEstate data;
+    // By category ordinal; null until a listener is registered
+    private final Object[] indexes;
+
+    private RealEstateSnapshot(long version, long[] categoryVersions, RealEstate data, Object[] indexes) {
+        this.version = version;
+        this.categoryVersions = categoryVersions;
+        this.data = data;
+        this.indexes = indexes;
+    }
+
+    /**
+     * Builds a snapshot from a copy of every list of {@code data}. Listings are keyed by their position.
+     */
+    static RealEstateSnapshot of(RealEstate data, long version) {
+        RealEstate frozen = new RealEstate();
+        for (Category category : Category.values()) {
+            frozen = category.withList(frozen, ChunkedList.of(category.listOf(data)));
+        }
+        long[] categoryVersions = new long[Category.values().length];
+        Arrays.fill(categoryVersions, version);
+        return new RealEstateSnapshot(version, categoryVersions, frozen, new Object[categoryVersions.length]);
+    }
+
+    /**
+     * Publishes the given replacement lists on top of this snapshot, each with the index derived from
+     * it; categories missing from {@code replacedIndexes} have none.
+     */
+    RealEstateSnapshot with(Map<Category, ChunkedList> replaced, Map<Category, Object> replacedIndexes) {
+        long next = version + 1;
+        long[] versions = categoryVersions.clone();
+        Object[] updatedIndexes = indexes.clone();
+        RealEstate updated = data;
+        for (Map.Entry<Category, ChunkedList> e : replaced.entrySet()) {
+            updated = e.getKey().withList(updated, e.getValue());
+            versions[e.getKey().ordinal()] = next;
+            updatedIndexes[e.getKey().ordinal()] = replacedIndexes.get(e.getKey());
+        }
+        return new RealEstateSnapshot(next, versions, updated, updatedIndexes);
+    }
+
+    // The same lists with the indexes of a newly registered listener
+    RealEstateSnapshot withIndexes(Object[] indexes) {
+        return new RealEstateSnapshot(version, categoryVersions, data, indexes.clone());
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    // Version of the last snapshot that changed this category
+    public long getCategoryVersion(Category category) {
+        return categoryVersions[category.ordinal()];
+    }
+
+    // What the registered listener derived from this version of the category's list, or null
+    public Object getIndex(Category category) {
+        return indexes[category.ordinal()];
+    }
+
+    public RealEstate getData() {
+        return data;
+    }
+
+    public List<Listing> listOf(Category category) {
+        return category.listOf(data);
+    }
+
+    ChunkedList chunksOf(Category category) {
+        return (ChunkedList) category.listOf(data);
+    }
+}
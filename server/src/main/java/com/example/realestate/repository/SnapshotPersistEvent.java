@@ -0,0 +1,31 @@
+package com.example.realestate.repository;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight recorder event of one full snapshot, from the log rotation to the rename.
+ */
+@Name("com.example.realestate.SnapshotPersist")
+@Label("Snapshot Persist")
+@Category({"Real Estate", "Persistence"})
+@Description("A full snapshot: log rotation, serialization, write, fsync and rename")
+@StackTrace(false)
+class SnapshotPersistEvent extends Event {
+
+    @Label("Format")
+    String format;
+
+    @Label("Version")
+    @Description("Version of the data the snapshot holds")
+    long version;
+
+    @Label("Size")
+    @DataAmount
+    long bytes;
+}
@@ -0,0 +1,200 @@
+package com.example.realestate.repository;
+
+import com.example.realestate.model.RealEstateModels.RealEstate;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads and writes snapshot files without ever leaving a half-written snapshot in place.
+ * <p>
+ * A snapshot is streamed into {@code <name>.tmp}, fsynced and atomically renamed over the primary
+ * file. The previous {@code retain} snapshots are kept as {@code <name>.1 .. <name>.N}; loading
+ * falls back to the newest one that can still be parsed.
+ */
+class SnapshotStore {
+    private static final Logger log = LoggerFactory.getLogger(SnapshotStore.class);
+
+    enum Format { JSON, BINARY }
+
+    record Loaded(RealEstate data, Path source) {}
+
+    private final Path primary;
+    private final Format format;
+    private final int retain;
+    private final ObjectMapper objectMapper;
+    private final ObjectWriter jsonWriter;
+    private final ByteBuffer writeBuffer = ByteBuffer.allocateDirect(1 << 16);
+
+    SnapshotStore(Path primary, Format format, int retain, ObjectMapper objectMapper) {
+        this.primary = primary;
+        this.format = format;
+        this.retain = retain;
+        this.objectMapper = objectMapper;
+        this.jsonWriter = objectMapper.writer()
+                .with(SerializationFeature.INDENT_OUTPUT)
+                .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+    }
+
+    Path primary() {
+        return primary;
+    }
+
+    boolean exists() {
+        return Files.exists(primary);
+    }
+
+    /**
+     * Loads the newest readable snapshot.
+     *
+     * @return the snapshot, or null when there is none at all
+     * @throws IllegalStateException when snapshots exist but none of them can be read; starting
+     *                               empty would silently discard the data on the next compaction
+     */
+    Loaded load() throws IOException {
+        Files.deleteIfExists(tempPath());
+        List<Path> candidates = new ArrayList<>();
+        for (int i = 0; i <= retain; i++) {
+            Path candidate = generation(i);
+            if (Files.exists(candidate)) candidates.add(candidate);
+        }
+        if (candidates.isEmpty()) return null;
+
+        for (Path candidate : candidates) {
+            try {
+                return new Loaded(read(candidate), candidate);
+            } catch (IOException e) {
+                log.warn("Snapshot {} is unreadable, trying an older one", candidate, e);
+            }
+        }
+        throw new IllegalStateException("No readable snapshot among " + candidates + "; refusing to start with an empty dataset");
+    }
+
+    /**
+     * Called under the repository's compaction lock, so the reusable write buffer is never shared.
+     *
+     * @return the size of the written snapshot in bytes
+     */
+    long write(RealEstate data) throws IOException {
+        Path temp = tempPath();
+        long size;
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            OutputStream out = new ChannelOutputStream(channel, writeBuffer);
+            if (format == Format.BINARY) {
+                BinarySnapshotCodec.write(data, out);
+            } else {
+                try (JsonGenerator generator = jsonWriter.createGenerator(out)) {
+                    jsonWriter.writeValue(generator, data);
+                }
+            }
+            out.flush();
+            channel.force(true);
+            size = channel.size();
+        } catch (IOException | RuntimeException e) {
+            writeBuffer.clear();
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        rotateGenerations();
+        Files.move(temp, primary, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        syncDirectory();
+        return size;
+    }
+
+    private RealEstate read(Path path) throws IOException {
+        return format == Format.BINARY
+                ? BinarySnapshotCodec.read(path)
+                : objectMapper.readValue(path.toFile(), RealEstate.class);
+    }
+
+    // primary -> .1 -> .2 ... -> .N; the primary itself stays in place until the atomic rename
+    private void rotateGenerations() throws IOException {
+        if (retain <= 0 || !Files.exists(primary)) return;
+        Files.deleteIfExists(generation(retain));
+        for (int i = retain - 1; i >= 1; i--) {
+            if (Files.exists(generation(i))) {
+                Files.move(generation(i), generation(i + 1), StandardCopyOption.ATOMIC_MOVE);
+            }
+        }
+        try {
+            Files.createLink(generation(1), primary);
+        } catch (IOException | UnsupportedOperationException e) {
+            Files.copy(primary, generation(1), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private void syncDirectory() {
+        try (FileChannel dir = FileChannel.open(primary.toAbsolutePath().getParent(), StandardOpenOption.READ)) {
+            dir.force(true);
+        } catch (IOException e) {
+            // Not every platform allows opening a directory; the rename itself is still atomic
+            log.debug("Could not fsync directory of {}", primary, e);
+        }
+    }
+
+    private Path generation(int i) {
+        return i == 0 ? primary : primary.resolveSibling(primary.getFileName() + "." + i);
+    }
+
+    private Path tempPath() {
+        return primary.resolveSibling(primary.getFileName() + ".tmp");
+    }
+
+    /**
+     * Buffered stream straight onto the file channel, reusing one buffer across snapshot writes.
+     */
+    private static final class ChannelOutputStream extends OutputStream {
+        private final FileChannel channel;
+        private final ByteBuffer buffer;
+
+        ChannelOutputStream(FileChannel channel, ByteBuffer buffer) {
+            this.channel = channel;
+            this.buffer = buffer;
+            buffer.clear();
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            if (!buffer.hasRemaining()) drain();
+            buffer.put((byte) b);
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            while (length > 0) {
+                if (!buffer.hasRemaining()) drain();
+                int n = Math.min(length, buffer.remaining());
+                buffer.put(bytes, offset, n);
+                offset += n;
+                length -= n;
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            drain();
+        }
+
+        private void drain() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package com.example.realestate.repository;
+
+import com.example.realestate.model.Category;
+import com.example.realestate.model.Listing;
+
+/**
+ * A listing together with the category it is stored under.
+ */
+public record StoredListing(Category category, Listing item) {
+}
@@ -0,0 +1,96 @@
+package com.example.realestate.service;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Recording;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+
+/**
+ * Continuous Java Flight Recorder recording of the JVM together with the application's own events:
+ * queries, mutations, category lock waits, mutation log fsyncs and snapshots. Only the last
+ * {@code max-age} or {@code max-size} of it is kept, on disk, and {@link #dump()} copies that out on
+ * demand, so a latency spike can be lined up with GC pauses and I/O after the fact.
+ * <p>
+ * The {@code default} settings are the JDK's low-overhead profile meant for production; {@code profile}
+ * samples more and costs more. Queries and mutations faster than {@code threshold} are not recorded.
+ */
+@Component
+public class FlightRecording implements InitializingBean, DisposableBean {
+    private static final Logger log = LoggerFactory.getLogger(FlightRecording.class);
+
+    private final boolean enabled;
+    private final String settings;
+    private final Duration maxAge;
+    private final DataSize maxSize;
+    private final Duration threshold;
+
+    private volatile Recording recording;
+
+    public FlightRecording(@Value("${realestate.jfr.enabled:true}") boolean enabled,
+                           @Value("${realestate.jfr.settings:default}") String settings,
+                           @Value("${realestate.jfr.max-age:15m}") Duration maxAge,
+                           @Value("${realestate.jfr.max-size:100MB}") DataSize maxSize,
+                           @Value("${realestate.jfr.threshold:1ms}") Duration threshold) {
+        this.enabled = enabled;
+        this.settings = settings;
+        this.maxAge = maxAge;
+        this.maxSize = maxSize;
+        this.threshold = threshold;
+    }
+
+    @Override
+    public void afterPropertiesSet() throws IOException, ParseException {
+        if (!enabled) return;
+        if (!FlightRecorder.isAvailable()) {
+            log.warn("Flight recorder is not available in this JVM; no recording is kept");
+            return;
+        }
+        Recording started = new Recording(Configuration.getConfiguration(settings));
+        started.setName("realestate");
+        started.setToDisk(true);
+        started.setMaxAge(maxAge);
+        started.setMaxSize(maxSize.toBytes());
+        started.enable(QueryEvent.class).withThreshold(threshold);
+        started.enable(MutationEvent.class).withThreshold(threshold);
+        started.start();
+        recording = started;
+        log.info("Flight recording started with {} settings, keeping the last {} min or {} MB",
+                settings, maxAge.toMinutes(), maxSize.toMegabytes());
+    }
+
+    @Override
+    public void destroy() {
+        Recording started = recording;
+        recording = null;
+        if (started != null) started.close();
+    }
+
+    /**
+     * Writes what the recording currently holds to a new temporary file and returns it; the caller
+     * deletes it. Null when no recording is running.
+     */
+    public Path dump() throws IOException {
+        Recording started = recording;
+        if (started == null) return null;
+        Path file = Files.createTempFile("realestate-", ".jfr");
+        try {
+            started.dump(file);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(file);
+            throw e;
+        }
+        return file;
+    }
+}
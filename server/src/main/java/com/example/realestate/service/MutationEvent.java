@@ -0,0 +1,31 @@
+package com.example.realestate.service;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight recorder event of one create, delete or import, including validation, the log append and
+ * the wait for durability.
+ */
+@Name("com.example.realestate.Mutation")
+@Label("Mutation")
+@Category({"Real Estate", "Mutations"})
+@Description("A create, delete or bulk import, until it was durable")
+@StackTrace(false)
+class MutationEvent extends Event {
+
+    @Label("Operation")
+    @Description("insert, delete or import")
+    String operation;
+
+    @Label("Categories")
+    String categories;
+
+    @Label("Listings")
+    @Description("Listings inserted or deleted")
+    int listings;
+}
@@ -0,0 +1,171 @@
+package com.example.realestate.service;
+
+import com.example.realestate.model.Category;
+import com.example.realestate.repository.FileBackedRepository;
+import com.example.realestate.repository.RealEstateSnapshot;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+import java.util.function.ToIntFunction;
+
+/**
+ * Bounded LRU cache of query results, keyed by the canonical form of a query.
+ * <p>
+ * Each entry is tagged with the versions of the categories the query read, taken before the query
+ * ran. An entry is only served while none of those categories has changed since, so a write to one
+ * category leaves the entries of all others in place, and nothing cached is served once a write to
+ * a category it read has completed. Outdated entries are dropped when they are next looked up or
+ * when they reach the end of the LRU order.
+ * <p>
+ * The counters are published as {@code cache.gets} (by result), {@code cache.invalidations},
+ * {@code cache.evictions} and {@code cache.size}, tagged {@code cache=query}.
+ */
+@Component
+public class QueryCache {
+    private final FileBackedRepository repository;
+    private final int maxEntries;
+    private final long maxWeight;
+    private final int maxEntryWeight;
+
+    // Not a monitor, so that virtual threads waiting for it do not pin their carriers
+    private final ReentrantLock lock = new ReentrantLock();
+    // Access-ordered; guarded by lock
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(256, 0.75f, true);
+    private long weight;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    private record Entry(List<Category> categories, long[] versions, Object value, int weight) {
+    }
+
+    public QueryCache(FileBackedRepository repository,
+                      @Value("${realestate.query-cache.max-entries:10000}") int maxEntries,
+                      @Value("${realestate.query-cache.max-weight:200000}") long maxWeight,
+                      @Value("${realestate.query-cache.max-entry-weight:500}") int maxEntryWeight,
+                      MeterRegistry meterRegistry) {
+        this.repository = repository;
+        this.maxEntries = maxEntries;
+        this.maxWeight = maxWeight;
+        this.maxEntryWeight = maxEntryWeight;
+        counter("cache.gets", hits, "Lookups answered from the cache").tag("result", "hit").register(meterRegistry);
+        counter("cache.gets", misses, "Lookups that ran the query").tag("result", "miss").register(meterRegistry);
+        counter("cache.invalidations", invalidations, "Entries dropped because a category they read changed").register(meterRegistry);
+        counter("cache.evictions", evictions, "Entries dropped to stay within the size bounds").register(meterRegistry);
+        Gauge.builder("cache.size", this, QueryCache::size)
+                .description("Cached entries")
+                .tag("cache", "query")
+                .register(meterRegistry);
+    }
+
+    private static FunctionCounter.Builder<LongAdder> counter(String name, LongAdder adder, String description) {
+        return FunctionCounter.builder(name, adder, LongAdder::sum)
+                .description(description)
+                .tag("cache", "query");
+    }
+
+    private int size() {
+        lock.lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the cached result of the query identified by {@code key}, or runs {@code query} and
+     * caches its result unless {@code weigher} finds it heavier than an entry may be.
+     *
+     * @param categories the categories the query reads
+     * @param weigher    weight of a result, roughly the number of listings it holds
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T get(String key, List<Category> categories, ToIntFunction<T> weigher, Supplier<T> query) {
+        if (maxEntries <= 0) return query.get();
+        RealEstateSnapshot snapshot = repository.snapshot();
+        lock.lock();
+        try {
+            Entry entry = entries.get(key);
+            if (entry != null) {
+                if (isCurrent(entry, snapshot)) {
+                    hits.increment();
+                    return (T) entry.value();
+                }
+                remove(key, entry);
+                invalidations.increment();
+            }
+        } finally {
+            lock.unlock();
+        }
+        misses.increment();
+
+        long[] versions = new long[categories.size()];
+        for (int i = 0; i < versions.length; i++) {
+            versions[i] = snapshot.getCategoryVersion(categories.get(i));
+        }
+        T value = query.get();
+        int w = weigher.applyAsInt(value);
+        if (w > maxEntryWeight) return value;
+        lock.lock();
+        try {
+            Entry previous = entries.put(key, new Entry(categories, versions, value, w));
+            if (previous != null) weight -= previous.weight();
+            weight += w;
+            evict();
+        } finally {
+            lock.unlock();
+        }
+        return value;
+    }
+
+    // Hits, misses and removals since startup, and the current size
+    public Map<String, Object> statistics() {
+        lock.lock();
+        try {
+            Map<String, Object> res = new LinkedHashMap<>();
+            res.put("entries", entries.size());
+            res.put("weight", weight);
+            res.put("hits", hits.sum());
+            res.put("misses", misses.sum());
+            res.put("invalidations", invalidations.sum());
+            res.put("evictions", evictions.sum());
+            return res;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static boolean isCurrent(Entry entry, RealEstateSnapshot snapshot) {
+        for (int i = 0; i < entry.versions().length; i++) {
+            if (snapshot.getCategoryVersion(entry.categories().get(i)) != entry.versions()[i]) return false;
+        }
+        return true;
+    }
+
+    private void evict() {
+        Iterator<Entry> it = entries.values().iterator();
+        while ((entries.size() > maxEntries || weight > maxWeight) && it.hasNext()) {
+            weight -= it.next().weight();
+            it.remove();
+            evictions.increment();
+        }
+    }
+
+    private void remove(String key, Entry entry) {
+        entries.remove(key);
+        weight -= entry.weight();
+    }
+}
@@ -0,0 +1,43 @@
+package com.example.realestate.service;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight recorder event of one search, keyword or filter query, from the service's point of view:
+ * its duration includes the cache lookup, and a page served from the cache scanned nothing.
+ */
+@Name("com.example.realestate.Query")
+@Label("Query")
+@Category({"Real Estate", "Queries"})
+@Description("A search, keyword or filter query answered by the indexes or from the query cache")
+@StackTrace(false)
+class QueryEvent extends Event {
+
+    @Label("Query")
+    @Description("search, keyword or filter")
+    String query;
+
+    @Label("Categories")
+    String categories;
+
+    @Label("Cached")
+    @Description("Whether the page came from the query cache")
+    boolean cached;
+
+    @Label("Rows Scanned")
+    @Description("Candidate rows visited by the indexes")
+    long scanned;
+
+    @Label("Rows Matched")
+    @Description("Rows that satisfied the query, up to where it stopped")
+    long matched;
+
+    @Label("Results")
+    @Description("Listings on the returned page")
+    int results;
+}
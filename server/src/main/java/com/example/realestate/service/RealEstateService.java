@@ -1,329 +1,337 @@
 package com.example.realestate.service;
 
+import com.example.realestate.index.FilterPlan;
+import com.example.realestate.index.GeoPredicate;
+import com.example.realestate.index.IndexManager;
+import com.example.realestate.index.Page;
+import com.example.realestate.index.QueryStats;
+import com.example.realestate.index.RangePredicate;
+import com.example.realestate.index.Sort;
+import com.example.realestate.index.Summary;
+import com.example.realestate.model.Attribute;
+import com.example.realestate.model.Category;
+import com.example.realestate.model.Listing;
+import com.example.realestate.model.ListingData;
 import com.example.realestate.model.RealEstateModels.*;
 import com.example.realestate.repository.FileBackedRepository;
+import com.example.realestate.repository.RealEstateSnapshot;
+import com.example.realestate.repository.StoredListing;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 import java.util.UUID;
-import java.util.stream.Collectors;
-
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+
+/**
+ * Validation, caching and dispatch of all listing operations. Every query and mutation is recorded
+ * as a flight recorder event ({@link QueryEvent}, {@link MutationEvent}), which costs nothing while
+ * no recording is running.
+ */
 @Service
 public class RealEstateService {
+    private static final Pattern OWNER_NAME = Pattern.compile("^[A-Za-z]+\\s[A-Za-z]+$");
+    private static final Pattern EMAIL = Pattern.compile("^[A-Za-z0-9+_.-]+@[A-Za-z0-9.-]+$");
+
+    private static final List<Category> ALL_CATEGORIES = List.of(Category.values());
+    private static final int MAX_LOOKUP_IDS = 1000;
+
+    // Errors listed in an import report; the failed count covers all of them
+    private static final int MAX_REPORTED_ERRORS = 1000;
+
+    // Checks of each category, decided once instead of per listing
+    private static final Map<Category, Consumer<Listing>> VALIDATORS = new EnumMap<>(Category.class);
+
+    static {
+        for (Category category : Category.values()) {
+            boolean sale = category.isSale();
+            Consumer<Listing> validator = item -> validateCommonData(item.getData(), sale);
+            if (category == Category.SALE_LAND) {
+                validator = validator.andThen(item -> validateLandUsage(((LandSale) item).getWhatUse()));
+            } else if (category == Category.RENT_LAND) {
+                validator = validator.andThen(item -> validateLandUsage(((LandRent) item).getWhatUse()));
+            }
+            VALIDATORS.put(category, validator);
+        }
+    }
+
     private final FileBackedRepository repository;
+    private final IndexManager indexManager;
+    private final QueryCache queryCache;
+    private final ObjectMapper objectMapper;
 
-    public RealEstateService(FileBackedRepository repository) {
+    public RealEstateService(FileBackedRepository repository, IndexManager indexManager, QueryCache queryCache,
+                             ObjectMapper objectMapper) {
         this.repository = repository;
+        this.indexManager = indexManager;
+        this.queryCache = queryCache;
+        this.objectMapper = objectMapper;
     }
 
     public RealEstate getAll() {
         return repository.get();
     }
 
-    public List<Object> search(String ownership, String propertyType) {
-        RealEstate data = repository.get();
-        List<Object> result = new ArrayList<>();
-
-        if ("sale".equalsIgnoreCase(ownership)) {
-            if (propertyType == null) {
-                result.addAll(data.getSale().getLand());
-                result.addAll(data.getSale().getCommercial().getOffice());
-                result.addAll(data.getSale().getCommercial().getShop());
-                result.addAll(data.getSale().getResidential().getVilla());
-                result.addAll(data.getSale().getResidential().getApartment());
-            } else switch (propertyType.toLowerCase()) {
-                case "land" -> result.addAll(data.getSale().getLand());
-                case "office" -> result.addAll(data.getSale().getCommercial().getOffice());
-                case "shop" -> result.addAll(data.getSale().getCommercial().getShop());
-                case "commercial" -> { result.addAll(data.getSale().getCommercial().getOffice()); result.addAll(data.getSale().getCommercial().getShop()); }
-                case "villa" -> result.addAll(data.getSale().getResidential().getVilla());
-                case "apartment" -> result.addAll(data.getSale().getResidential().getApartment());
-                case "residential" -> { result.addAll(data.getSale().getResidential().getVilla()); result.addAll(data.getSale().getResidential().getApartment()); }
-            }
-        } else if ("rent".equalsIgnoreCase(ownership)) {
-            if (propertyType == null) {
-                result.addAll(data.getRent().getLand());
-                result.addAll(data.getRent().getCommercial().getOffice());
-                result.addAll(data.getRent().getCommercial().getShop());
-                result.addAll(data.getRent().getResidential().getVilla());
-                result.addAll(data.getRent().getResidential().getApartment());
-            } else switch (propertyType.toLowerCase()) {
-                case "land" -> result.addAll(data.getRent().getLand());
-                case "office" -> result.addAll(data.getRent().getCommercial().getOffice());
-                case "shop" -> result.addAll(data.getRent().getCommercial().getShop());
-                case "commercial" -> { result.addAll(data.getRent().getCommercial().getOffice()); result.addAll(data.getRent().getCommercial().getShop()); }
-                case "villa" -> result.addAll(data.getRent().getResidential().getVilla());
-                case "apartment" -> result.addAll(data.getRent().getResidential().getApartment());
-                case "residential" -> { result.addAll(data.getRent().getResidential().getVilla()); result.addAll(data.getRent().getResidential().getApartment()); }
-            }
+    public RealEstateSnapshot snapshot() {
+        return repository.snapshot();
+    }
+
+    /* === Lookup by id === */
+
+    // The listing as {"ownership", "propertyType", "item"}, or null
+    public Map<String, Object> findById(String id) {
+        StoredListing found = repository.find(id);
+        return found == null ? null : envelope(found);
+    }
+
+    // The listings that exist, in request order
+    public List<Map<String, Object>> findByIds(List<String> ids) {
+        if (ids.size() > MAX_LOOKUP_IDS) {
+            throw new IllegalArgumentException("At most " + MAX_LOOKUP_IDS + " ids can be looked up at once");
+        }
+        List<Map<String, Object>> res = new ArrayList<>();
+        for (StoredListing found : repository.findAll(ids.stream().filter(Objects::nonNull).toList())) {
+            res.add(envelope(found));
+        }
+        return res;
+    }
+
+    private static Map<String, Object> envelope(StoredListing listing) {
+        Map<String, Object> res = new LinkedHashMap<>();
+        res.put("ownership", listing.category().getOwnership());
+        res.put("propertyType", listing.category().getPropertyType());
+        res.put("item", listing.item());
+        return res;
+    }
+
+    /**
+     * Tag of the current state of all data; it changes with every create or delete.
+     */
+    public String dataVersion() {
+        return repository.getEpoch() + "-" + repository.snapshot().getVersion();
+    }
+
+    /**
+     * Tag of the current state of the selected categories; changes to other categories leave it as is.
+     */
+    public String dataVersion(String ownership, String propertyType) {
+        RealEstateSnapshot snapshot = repository.snapshot();
+        long version = 0;
+        for (Category category : categories(ownership, propertyType)) {
+            version = Math.max(version, snapshot.getCategoryVersion(category));
+        }
+        return repository.getEpoch() + "-" + version;
+    }
+
+    public Page search(String ownership, String propertyType, String sort, String order,
+                       Integer page, Integer size, String cursor) {
+        List<Category> categories = categories(ownership, propertyType);
+        Sort by = Sort.parse(sort, order);
+        int skip = skip(page, size, cursor), limit = pageSize(size);
+        String key = "search|" + categories + "|" + pageKey(by, cursor, skip, limit);
+        return query("search", categories, key, stats -> indexManager.list(categories, by, cursor, skip, limit, stats));
+    }
+
+    // Categories selected by an ownership and an optional property type or group ("commercial", "residential")
+    private List<Category> categories(String ownership, String propertyType) {
+        List<Category> result = new ArrayList<>();
+        if (!"sale".equalsIgnoreCase(ownership) && !"rent".equalsIgnoreCase(ownership)) return result;
+        String type = propertyType == null ? null : propertyType.toLowerCase();
+        for (Category category : Category.values()) {
+            if (!category.getOwnership().equalsIgnoreCase(ownership)) continue;
+            String t = category.getPropertyType();
+            boolean selected = type == null || type.equals(t)
+                    || ("commercial".equals(type) && (t.equals("office") || t.equals("shop")))
+                    || ("residential".equals(type) && (t.equals("villa") || t.equals("apartment")));
+            if (selected) result.add(category);
         }
         return result;
     }
 
-    public List<Object> searchByKeyword(String keyword) {
+    public Page searchByKeyword(String keyword, String sort, String order, Integer page, Integer size, String cursor) {
+        Sort by = Sort.parse(sort, order);
         if (keyword == null || keyword.trim().isEmpty()) {
-            return new ArrayList<>();
+            return new Page(new ArrayList<>(), null, 0L);
         }
         
         String searchTerm = keyword.trim().toLowerCase();
-        RealEstate data = repository.get();
-        List<Object> result = new ArrayList<>();
-        
-        // Search in sale properties
-        result.addAll(searchInList(data.getSale().getLand(), searchTerm));
-        result.addAll(searchInList(data.getSale().getCommercial().getOffice(), searchTerm));
-        result.addAll(searchInList(data.getSale().getCommercial().getShop(), searchTerm));
-        result.addAll(searchInList(data.getSale().getResidential().getVilla(), searchTerm));
-        result.addAll(searchInList(data.getSale().getResidential().getApartment(), searchTerm));
-        
-        // Search in rent properties
-        result.addAll(searchInList(data.getRent().getLand(), searchTerm));
-        result.addAll(searchInList(data.getRent().getCommercial().getOffice(), searchTerm));
-        result.addAll(searchInList(data.getRent().getCommercial().getShop(), searchTerm));
-        result.addAll(searchInList(data.getRent().getResidential().getVilla(), searchTerm));
-        result.addAll(searchInList(data.getRent().getResidential().getApartment(), searchTerm));
-        
-        return result;
+        int skip = skip(page, size, cursor), limit = pageSize(size);
+        String key = "keyword|" + searchTerm + "|" + pageKey(by, cursor, skip, limit);
+        return query("keyword", ALL_CATEGORIES, key,
+                stats -> indexManager.searchKeyword(searchTerm, by, cursor, skip, limit, stats));
     }
-    
-    private <T> List<T> searchInList(List<T> items, String searchTerm) {
-        return items.stream()
-            .filter(item -> matchesKeyword(item, searchTerm))
-            .collect(Collectors.toList());
-    }
-    
-    private boolean matchesKeyword(Object item, String searchTerm) {
-        try {
-            // Get the data object from the item
-            var dataField = item.getClass().getDeclaredField("data");
-            dataField.setAccessible(true);
-            Object data = dataField.get(item);
-            
-            // Build searchable text from all relevant fields
-            StringBuilder searchableText = new StringBuilder();
-            
-            // Add ID
-            try {
-                var idField = item.getClass().getDeclaredField("id");
-                idField.setAccessible(true);
-                Object id = idField.get(item);
-                if (id != null) {
-                    searchableText.append(id.toString().toLowerCase()).append(" ");
-                }
-            } catch (NoSuchFieldException ignored) {}
-            
-            // Add owner name
-            try {
-                var ownerField = data.getClass().getDeclaredField("ownerFullName");
-                ownerField.setAccessible(true);
-                Object owner = ownerField.get(data);
-                if (owner != null) {
-                    searchableText.append(owner.toString().toLowerCase()).append(" ");
-                }
-            } catch (NoSuchFieldException ignored) {}
-            
-            // Add address
-            try {
-                var addressField = data.getClass().getDeclaredField("address");
-                addressField.setAccessible(true);
-                Object address = addressField.get(data);
-                if (address != null) {
-                    searchableText.append(address.toString().toLowerCase()).append(" ");
-                }
-            } catch (NoSuchFieldException ignored) {}
-            
-            // Add email
-            try {
-                var emailField = data.getClass().getDeclaredField("email");
-                emailField.setAccessible(true);
-                Object email = emailField.get(data);
-                if (email != null) {
-                    searchableText.append(email.toString().toLowerCase()).append(" ");
-                }
-            } catch (NoSuchFieldException ignored) {}
-            
-            // Add whatUse for land properties
-            try {
-                var whatUseField = item.getClass().getDeclaredField("whatUse");
-                whatUseField.setAccessible(true);
-                Object whatUse = whatUseField.get(item);
-                if (whatUse != null) {
-                    searchableText.append(whatUse.toString().toLowerCase()).append(" ");
-                }
-            } catch (NoSuchFieldException ignored) {}
-            
-            // Add room count
-            try {
-                var roomCountField = item.getClass().getDeclaredField("roomCount");
-                roomCountField.setAccessible(true);
-                Object roomCount = roomCountField.get(item);
-                if (roomCount != null) {
-                    searchableText.append(roomCount.toString().toLowerCase()).append(" ");
-                }
-            } catch (NoSuchFieldException ignored) {}
-            
-            // Add floor count
-            try {
-                var floorCountField = item.getClass().getDeclaredField("floorCount");
-                floorCountField.setAccessible(true);
-                Object floorCount = floorCountField.get(item);
-                if (floorCount != null) {
-                    searchableText.append(floorCount.toString().toLowerCase()).append(" ");
-                }
-            } catch (NoSuchFieldException ignored) {}
-            
-            // Add yard area
-            try {
-                var yardAreaField = item.getClass().getDeclaredField("yardArea");
-                yardAreaField.setAccessible(true);
-                Object yardArea = yardAreaField.get(item);
-                if (yardArea != null) {
-                    searchableText.append(yardArea.toString().toLowerCase()).append(" ");
-                }
-            } catch (NoSuchFieldException ignored) {}
-            
-            // Add area
-            try {
-                var areaField = data.getClass().getDeclaredField("area");
-                areaField.setAccessible(true);
-                Object area = areaField.get(data);
-                if (area != null) {
-                    searchableText.append(area.toString().toLowerCase()).append(" ");
-                }
-            } catch (NoSuchFieldException ignored) {}
-            
-            // Add price (fullPrice or rentPrice)
-            try {
-                var fullPriceField = data.getClass().getDeclaredField("fullPrice");
-                fullPriceField.setAccessible(true);
-                Object fullPrice = fullPriceField.get(data);
-                if (fullPrice != null) {
-                    searchableText.append(fullPrice.toString().toLowerCase()).append(" ");
-                }
-            } catch (NoSuchFieldException ignored) {
-                try {
-                    var rentPriceField = data.getClass().getDeclaredField("rentPrice");
-                    rentPriceField.setAccessible(true);
-                    Object rentPrice = rentPriceField.get(data);
-                    if (rentPrice != null) {
-                        searchableText.append(rentPrice.toString().toLowerCase()).append(" ");
-                    }
-                } catch (NoSuchFieldException ignored2) {}
-            }
-            
-            return searchableText.toString().contains(searchTerm);
-            
-        } catch (Exception e) {
-            // If any reflection fails, don't include the item
-            return false;
+
+    // Runs a query through the cache, or directly without a key, and records it. The rows it scanned
+    // are only collected while the event is enabled.
+    private Page query(String kind, List<Category> categories, String key, Function<QueryStats, Page> run) {
+        QueryEvent event = new QueryEvent();
+        event.begin();
+        QueryStats stats = event.isEnabled() ? new QueryStats() : null;
+        Page page = key == null ? run.apply(stats)
+                : queryCache.get(key, categories, RealEstateService::weigh, () -> run.apply(stats));
+        event.end();
+        if (stats != null && event.shouldCommit()) {
+            event.query = kind;
+            event.categories = categories.toString();
+            event.cached = !stats.ran();
+            event.scanned = stats.scanned();
+            event.matched = stats.matched();
+            event.results = page.items().size();
+            event.commit();
         }
+        return page;
+    }
+
+    private static String pageKey(Sort sort, String cursor, int skip, int limit) {
+        return sort + "|" + cursor + "|" + skip + "|" + limit;
+    }
+
+    // Cached pages weigh the listings they hold
+    private static int weigh(Page page) {
+        return page.items().size() + 1;
     }
 
-    public List<Object> paginateList(List<Object> items, Integer page, Integer size) {
-        if (items == null) return new ArrayList<>();
-        int effectiveSize = (size == null || size <= 0) ? 5 : size;
-        int effectivePage = (page == null || page < 0) ? 0 : page;
-        int fromIndex = Math.min(effectivePage * effectiveSize, items.size());
-        int toIndex = Math.min(fromIndex + effectiveSize, items.size());
-        return items.subList(fromIndex, toIndex);
+    private static int pageSize(Integer size) {
+        return (size == null || size <= 0) ? 5 : size;
+    }
+
+    // Matches before a numbered page; with a cursor the page simply continues after it
+    private static int skip(Integer page, Integer size, String cursor) {
+        if (cursor != null || page == null || page < 0) return 0;
+        return (int) Math.min(Integer.MAX_VALUE, (long) page * pageSize(size));
     }
 
     /* === Add === */
     public LandSale addLandSale(LandSale item) {
-        validateCommonData(item.getData(), true);
-        validateLandUsage(item.getWhatUse());
-        item.setId(UUID.randomUUID().toString());
-        RealEstate d = repository.get();
-        d.getSale().getLand().add(item);
-        repository.persist();
-        return item;
+        return add(Category.SALE_LAND, item);
     }
 
     public OfficeSale addOfficeSale(OfficeSale item) {
-        validateCommonData(item.getData(), true);
-        item.setId(UUID.randomUUID().toString());
-        RealEstate d = repository.get();
-        d.getSale().getCommercial().getOffice().add(item);
-        repository.persist();
-        return item;
+        return add(Category.SALE_OFFICE, item);
     }
 
     public ShopSale addShopSale(ShopSale item) {
-        validateCommonData(item.getData(), true);
-        item.setId(UUID.randomUUID().toString());
-        RealEstate d = repository.get();
-        d.getSale().getCommercial().getShop().add(item);
-        repository.persist();
-        return item;
+        return add(Category.SALE_SHOP, item);
     }
 
     public VillaSale addVillaSale(VillaSale item) {
-        validateCommonData(item.getData(), true);
-        item.setId(UUID.randomUUID().toString());
-        RealEstate d = repository.get();
-        d.getSale().getResidential().getVilla().add(item);
-        repository.persist();
-        return item;
+        return add(Category.SALE_VILLA, item);
     }
 
     public ApartmentSale addApartmentSale(ApartmentSale item) {
-        validateCommonData(item.getData(), true);
-        item.setId(UUID.randomUUID().toString());
-        RealEstate d = repository.get();
-        d.getSale().getResidential().getApartment().add(item);
-        repository.persist();
-        return item;
+        return add(Category.SALE_APARTMENT, item);
     }
 
     public LandRent addLandRent(LandRent item) {
-        validateCommonData(item.getData(), false);
-        validateLandUsage(item.getWhatUse());
-        item.setId(UUID.randomUUID().toString());
-        RealEstate d = repository.get();
-        d.getRent().getLand().add(item);
-        repository.persist();
-        return item;
+        return add(Category.RENT_LAND, item);
     }
 
     public OfficeRent addOfficeRent(OfficeRent item) {
-        validateCommonData(item.getData(), false);
-        item.setId(UUID.randomUUID().toString());
-        RealEstate d = repository.get();
-        d.getRent().getCommercial().getOffice().add(item);
-        repository.persist();
-        return item;
+        return add(Category.RENT_OFFICE, item);
     }
 
     public ShopRent addShopRent(ShopRent item) {
-        validateCommonData(item.getData(), false);
-        item.setId(UUID.randomUUID().toString());
-        RealEstate d = repository.get();
-        d.getRent().getCommercial().getShop().add(item);
-        repository.persist();
-        return item;
+        return add(Category.RENT_SHOP, item);
     }
 
     public VillaRent addVillaRent(VillaRent item) {
-        validateCommonData(item.getData(), false);
-        item.setId(UUID.randomUUID().toString());
-        RealEstate d = repository.get();
-        d.getRent().getResidential().getVilla().add(item);
-        repository.persist();
-        return item;
+        return add(Category.RENT_VILLA, item);
     }
 
     public ApartmentRent addApartmentRent(ApartmentRent item) {
-        validateCommonData(item.getData(), false);
+        return add(Category.RENT_APARTMENT, item);
+    }
+
+    private <T extends Listing> T add(Category category, T item) {
+        MutationEvent event = new MutationEvent();
+        event.begin();
+        VALIDATORS.get(category).accept(item);
         item.setId(UUID.randomUUID().toString());
-        RealEstate d = repository.get();
-        d.getRent().getResidential().getApartment().add(item);
-        repository.persist();
+        repository.insert(category, item);
+        commit(event, "insert", List.of(category), 1);
         return item;
     }
 
-    private void validateLandUsage(String whatUse) {
+    private static void commit(MutationEvent event, String operation, Collection<Category> categories, int listings) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.operation = operation;
+            event.categories = categories.toString();
+            event.listings = listings;
+            event.commit();
+        }
+    }
+
+    /* === Bulk import === */
+
+    /**
+     * Imports a JSON array or newline-delimited stream of {@code {"ownership", "propertyType", "item"}}
+     * records, the format of the NDJSON export. The input is read one record at a time. Records that
+     * cannot be read or fail validation are reported and skipped; all others are inserted as one commit.
+     */
+    public Map<String, Object> importListings(InputStream in) throws IOException {
+        MutationEvent event = new MutationEvent();
+        event.begin();
+        Map<Category, List<Listing>> batch = new EnumMap<>(Category.class);
+        List<Map<String, Object>> errors = new ArrayList<>();
+        int imported = 0, failed = 0, index = 0;
+        try (JsonParser parser = objectMapper.getFactory().createParser(in)) {
+            JsonToken token = parser.nextToken();
+            boolean array = token == JsonToken.START_ARRAY;
+            if (array) token = parser.nextToken();
+            for (; token != null && !(array && token == JsonToken.END_ARRAY); token = parser.nextToken(), index++) {
+                JsonNode record = objectMapper.readTree(parser);
+                try {
+                    Category category = Category.of(record.path("ownership").asText(null), record.path("propertyType").asText(null));
+                    if (category == null) throw new IllegalArgumentException("Unknown ownership/propertyType");
+                    if (!record.path("item").isObject()) throw new IllegalArgumentException("item is required");
+                    Listing item = objectMapper.treeToValue(record.get("item"), category.getItemType());
+                    VALIDATORS.get(category).accept(item);
+                    item.setId(UUID.randomUUID().toString());
+                    batch.computeIfAbsent(category, c -> new ArrayList<>()).add(item);
+                    imported++;
+                } catch (IllegalArgumentException | JsonProcessingException e) {
+                    failed++;
+                    if (errors.size() < MAX_REPORTED_ERRORS) {
+                        String message = e instanceof JsonProcessingException j ? j.getOriginalMessage() : e.getMessage();
+                        Map<String, Object> error = new LinkedHashMap<>();
+                        error.put("index", index);
+                        error.put("message", message);
+                        errors.add(error);
+                    }
+                }
+            }
+        } catch (JsonProcessingException e) {
+            // The stream itself is broken, so nothing after this point can be trusted either
+            throw new IllegalArgumentException("Malformed import at record " + index + ": " + e.getOriginalMessage());
+        }
+        repository.insertAll(batch);
+        commit(event, "import", batch.keySet(), imported);
+
+        Map<String, Object> res = new LinkedHashMap<>();
+        res.put("imported", imported);
+        res.put("failed", failed);
+        res.put("errors", errors);
+        return res;
+    }
+
+    private static void validateLandUsage(String whatUse) {
         if (whatUse == null) {
             throw new IllegalArgumentException("whatUse is required for land and must be 'residential' or 'commercial'");
         }
@@ -333,279 +341,100 @@ public class RealEstateService {
         }
     }
 
-    private void validateCommonData(Object data, boolean isSale) {
+    private static void validateCommonData(ListingData data, boolean isSale) {
         if (data == null) throw new IllegalArgumentException("data is required");
-        try {
-            var addressF = data.getClass().getDeclaredField("address"); addressF.setAccessible(true);
-            var emailF = data.getClass().getDeclaredField("email"); emailF.setAccessible(true);
-            var areaF = data.getClass().getDeclaredField("area"); areaF.setAccessible(true);
-            var ownerF = data.getClass().getDeclaredField("ownerFullName"); ownerF.setAccessible(true);
-
-            String address = String.valueOf(addressF.get(data));
-            String email = String.valueOf(emailF.get(data));
-            double area = ((Number) areaF.get(data)).doubleValue();
-            String owner = String.valueOf(ownerF.get(data));
-
-            if (address == null || address.trim().isEmpty()) throw new IllegalArgumentException("address is required");
-            if (owner == null || owner.trim().isEmpty()) throw new IllegalArgumentException("Owner Full Name is required");
-            if (!owner.matches("^[A-Za-z]+\\s[A-Za-z]+$")) throw new IllegalArgumentException("Owner Full Name must be in format 'FirstName LastName' (only letters, exactly one space)");
-            if (!email.matches("^[A-Za-z0-9+_.-]+@[A-Za-z0-9.-]+$")) throw new IllegalArgumentException("email is invalid");
-            if (area <= 0) throw new IllegalArgumentException("area must be greater than 0");
-
-            if (isSale) {
-                var priceF = data.getClass().getDeclaredField("fullPrice"); priceF.setAccessible(true);
-                double price = ((Number) priceF.get(data)).doubleValue();
-                if (price <= 0) throw new IllegalArgumentException("fullPrice must be greater than 0");
-            } else {
-                var rentF = data.getClass().getDeclaredField("rentPrice"); rentF.setAccessible(true);
-                var mortF = data.getClass().getDeclaredField("mortgagePrice"); mortF.setAccessible(true);
-                double rent = ((Number) rentF.get(data)).doubleValue();
-                double mort = ((Number) mortF.get(data)).doubleValue();
-                if (rent <= 0) throw new IllegalArgumentException("rentPrice must be greater than 0");
-                if (mort < 0) throw new IllegalArgumentException("mortgagePrice cannot be negative");
-            }
-        } catch (NoSuchFieldException e) {
-            throw new IllegalArgumentException("Invalid data object");
-        } catch (ClassCastException e) {
-            throw new IllegalArgumentException("Numeric fields must be numbers");
-        } catch (NullPointerException e) {
-            throw new IllegalArgumentException("All fields are required");
-        } catch (IllegalAccessException e) {
-            throw new IllegalArgumentException("Validation error");
+        String address = String.valueOf(data.getAddress());
+        String email = String.valueOf(data.getEmail());
+        String owner = String.valueOf(data.getOwnerFullName());
+
+        if (address.trim().isEmpty()) throw new IllegalArgumentException("address is required");
+        if (owner.trim().isEmpty()) throw new IllegalArgumentException("Owner Full Name is required");
+        if (!OWNER_NAME.matcher(owner).matches()) throw new IllegalArgumentException("Owner Full Name must be in format 'FirstName LastName' (only letters, exactly one space)");
+        if (!EMAIL.matcher(email).matches()) throw new IllegalArgumentException("email is invalid");
+        if (data.getArea() <= 0) throw new IllegalArgumentException("area must be greater than 0");
+        if ((data.getLatitude() == null) != (data.getLongitude() == null)) throw new IllegalArgumentException("latitude and longitude must be given together");
+        if (data.getLatitude() != null && !(data.getLatitude() >= -90 && data.getLatitude() <= 90)) throw new IllegalArgumentException("latitude must be between -90 and 90");
+        if (data.getLongitude() != null && !(data.getLongitude() >= -180 && data.getLongitude() <= 180)) throw new IllegalArgumentException("longitude must be between -180 and 180");
+
+        if (isSale) {
+            if (data.price() <= 0) throw new IllegalArgumentException("fullPrice must be greater than 0");
+        } else {
+            if (data.price() <= 0) throw new IllegalArgumentException("rentPrice must be greater than 0");
+            if (((RentData) data).getMortgagePrice() < 0) throw new IllegalArgumentException("mortgagePrice cannot be negative");
         }
     }
 
     /* === Delete === */
     public boolean delete(String ownership, String propertyType, String id) {
-        RealEstate d = repository.get();
-        boolean removed = false;
-        if ("sale".equalsIgnoreCase(ownership)) {
-            switch (propertyType.toLowerCase()) {
-                case "land" -> removed = d.getSale().getLand().removeIf(x -> id.equals(x.getId()));
-                case "office" -> removed = d.getSale().getCommercial().getOffice().removeIf(x -> id.equals(x.getId()));
-                case "shop" -> removed = d.getSale().getCommercial().getShop().removeIf(x -> id.equals(x.getId()));
-                case "villa" -> removed = d.getSale().getResidential().getVilla().removeIf(x -> id.equals(x.getId()));
-                case "apartment" -> removed = d.getSale().getResidential().getApartment().removeIf(x -> id.equals(x.getId()));
-                default -> {}
-            }
-        } else if ("rent".equalsIgnoreCase(ownership)) {
-            switch (propertyType.toLowerCase()) {
-                case "land" -> removed = d.getRent().getLand().removeIf(x -> id.equals(x.getId()));
-                case "office" -> removed = d.getRent().getCommercial().getOffice().removeIf(x -> id.equals(x.getId()));
-                case "shop" -> removed = d.getRent().getCommercial().getShop().removeIf(x -> id.equals(x.getId()));
-                case "villa" -> removed = d.getRent().getResidential().getVilla().removeIf(x -> id.equals(x.getId()));
-                case "apartment" -> removed = d.getRent().getResidential().getApartment().removeIf(x -> id.equals(x.getId()));
-                default -> {}
-            }
-        }
-        if (removed) repository.persist();
-        return removed;
+        Category category = Category.of(ownership, propertyType);
+        if (category == null) return false;
+        MutationEvent event = new MutationEvent();
+        event.begin();
+        boolean deleted = repository.delete(category, id);
+        commit(event, "delete", List.of(category), deleted ? 1 : 0);
+        return deleted;
     }
 
     /* === Advanced Filter === */
-    public List<Object> filter(String ownership, String propertyType, Double minPrice, Double maxPrice, 
+    public Page filter(String ownership, String propertyType, Double minPrice, Double maxPrice, 
                               Double minArea, Double maxArea, Integer minRoomCount, Integer maxRoomCount,
                               Double minYardArea, Double maxYardArea, Integer minFloorCount, Integer maxFloorCount,
-                              Double minMortgagePrice, Double maxMortgagePrice) {
-        // First get base search results
-        List<Object> baseResults = search(ownership, propertyType);
-        
-        // Apply additional filters
-        return baseResults.stream()
-            .filter(item -> matchesFilters(item, minPrice, maxPrice, minArea, maxArea, minRoomCount, maxRoomCount,
-                                            minYardArea, maxYardArea, minFloorCount, maxFloorCount,
-                                            minMortgagePrice, maxMortgagePrice))
-            .collect(Collectors.toList());
-    }
-    
-    private boolean matchesFilters(Object item, Double minPrice, Double maxPrice, 
-                                 Double minArea, Double maxArea, Integer minRoomCount, Integer maxRoomCount,
-                                 Double minYardArea, Double maxYardArea, Integer minFloorCount, Integer maxFloorCount,
-                                 Double minMortgagePrice, Double maxMortgagePrice) {
-        try {
-            // Use reflection to get common fields
-            var dataField = item.getClass().getDeclaredField("data");
-            dataField.setAccessible(true);
-            Object data = dataField.get(item);
-            
-            // Check area filter
-            if (minArea != null || maxArea != null) {
-                var areaField = data.getClass().getDeclaredField("area");
-                areaField.setAccessible(true);
-                double area = (Double) areaField.get(data);
-                if (minArea != null && area < minArea) return false;
-                if (maxArea != null && area > maxArea) return false;
-            }
-            
-            // Check price filter (fullPrice or rentPrice)
-            if (minPrice != null || maxPrice != null) {
-                Double price = null;
-                try {
-                    var fullPriceField = data.getClass().getDeclaredField("fullPrice");
-                    fullPriceField.setAccessible(true);
-                    price = (Double) fullPriceField.get(data);
-                } catch (NoSuchFieldException e) {
-                    try {
-                        var rentPriceField = data.getClass().getDeclaredField("rentPrice");
-                        rentPriceField.setAccessible(true);
-                        price = (Double) rentPriceField.get(data);
-                    } catch (NoSuchFieldException ignored) {}
-                }
-                if (price != null) {
-                    if (minPrice != null && price < minPrice) return false;
-                    if (maxPrice != null && price > maxPrice) return false;
-                }
-            }
-
-            // Check mortgage filter (rent only)
-            if (minMortgagePrice != null || maxMortgagePrice != null) {
-                try {
-                    var mortgageField = data.getClass().getDeclaredField("mortgagePrice");
-                    mortgageField.setAccessible(true);
-                    Double mortgage = (Double) mortgageField.get(data);
-                    if (mortgage != null) {
-                        if (minMortgagePrice != null && mortgage < minMortgagePrice) return false;
-                        if (maxMortgagePrice != null && mortgage > maxMortgagePrice) return false;
-                    }
-                } catch (NoSuchFieldException ignored) {}
-            }
-            
-            // Check room count filter
-            if (minRoomCount != null || maxRoomCount != null) {
-                try {
-                    var roomCountField = item.getClass().getDeclaredField("roomCount");
-                    roomCountField.setAccessible(true);
-                    Integer roomCount = (Integer) roomCountField.get(item);
-                    if (roomCount != null) {
-                        if (minRoomCount != null && roomCount < minRoomCount) return false;
-                        if (maxRoomCount != null && roomCount > maxRoomCount) return false;
-                    }
-                } catch (NoSuchFieldException ignored) {
-                    // Some properties don't have room count, skip this filter
-                }
-            }
-
-            // Check yard area (villa)
-            if (minYardArea != null || maxYardArea != null) {
-                try {
-                    var yardAreaField = item.getClass().getDeclaredField("yardArea");
-                    yardAreaField.setAccessible(true);
-                    Double yardArea = (Double) yardAreaField.get(item);
-                    if (yardArea != null) {
-                        if (minYardArea != null && yardArea < minYardArea) return false;
-                        if (maxYardArea != null && yardArea > maxYardArea) return false;
-                    }
-                } catch (NoSuchFieldException ignored) {}
-            }
-
-            // Check floor count (apartment)
-            if (minFloorCount != null || maxFloorCount != null) {
-                try {
-                    var floorCountField = item.getClass().getDeclaredField("floorCount");
-                    floorCountField.setAccessible(true);
-                    Integer floorCount = (Integer) floorCountField.get(item);
-                    if (floorCount != null) {
-                        if (minFloorCount != null && floorCount < minFloorCount) return false;
-                        if (maxFloorCount != null && floorCount > maxFloorCount) return false;
-                    }
-                } catch (NoSuchFieldException ignored) {}
+                              Double minMortgagePrice, Double maxMortgagePrice,
+                              Double latitude, Double longitude, Double radiusKm,
+                              Double minLatitude, Double maxLatitude, Double minLongitude, Double maxLongitude,
+                              String sort, String order, Integer page, Integer size, String cursor, List<FilterPlan> plan) {
+        List<RangePredicate> predicates = new ArrayList<>();
+        addPredicate(predicates, Attribute.AREA, minArea, maxArea);
+        addPredicate(predicates, Attribute.PRICE, minPrice, maxPrice);
+        addPredicate(predicates, Attribute.MORTGAGE_PRICE, minMortgagePrice, maxMortgagePrice);
+        addPredicate(predicates, Attribute.ROOM_COUNT, minRoomCount, maxRoomCount);
+        addPredicate(predicates, Attribute.YARD_AREA, minYardArea, maxYardArea);
+        addPredicate(predicates, Attribute.FLOOR_COUNT, minFloorCount, maxFloorCount);
+        GeoPredicate geo = GeoPredicate.of(latitude, longitude, radiusKm, minLatitude, maxLatitude, minLongitude, maxLongitude);
+        List<Category> categories = categories(ownership, propertyType);
+        Sort by = Sort.parse(sort, order);
+        int skip = skip(page, size, cursor), limit = pageSize(size);
+        // explain reports how the query ran, so it always runs
+        if (plan != null) {
+            return query("filter", categories, null,
+                    stats -> indexManager.filter(categories, predicates, geo, by, cursor, skip, limit, plan, stats));
+        }
+        // Bounds on attributes none of the categories have are ignored, so they are left out of the key
+        StringBuilder key = new StringBuilder("filter|").append(categories).append('|');
+        for (RangePredicate p : predicates) {
+            if (categories.stream().anyMatch(p.attribute()::appliesTo)) {
+                key.append(p.attribute()).append(':').append(p.min()).append(':').append(p.max()).append('|');
             }
-            
-            return true;
-        } catch (Exception e) {
-            // If any reflection fails, include the item
-            return true;
         }
+        if (geo != null) key.append(geo).append('|');
+        key.append(pageKey(by, cursor, skip, limit));
+        return query("filter", categories, key.toString(),
+                stats -> indexManager.filter(categories, predicates, geo, by, cursor, skip, limit, null, stats));
     }
 
-    public Map<String, Object> stats(String ownership, String propertyType) {
-        List<Object> items = search(ownership, propertyType);
-        Double minArea = null, maxArea = null, minPrice = null, maxPrice = null, minYardArea = null, maxYardArea = null;
-        Double minMortgagePrice = null, maxMortgagePrice = null;
-        Integer minRoom = null, maxRoom = null, minFloor = null, maxFloor = null;
-
-        for (Object item : items) {
-            try {
-                var dataField = item.getClass().getDeclaredField("data");
-                dataField.setAccessible(true);
-                Object data = dataField.get(item);
-
-                // area
-                try {
-                    var areaField = data.getClass().getDeclaredField("area");
-                    areaField.setAccessible(true);
-                    double v = (Double) areaField.get(data);
-                    minArea = minArea == null ? v : Math.min(minArea, v);
-                    maxArea = maxArea == null ? v : Math.max(maxArea, v);
-                } catch (NoSuchFieldException ignored) {}
-
-                // price (fullPrice or rentPrice)
-                Double price = null;
-                try {
-                    var fp = data.getClass().getDeclaredField("fullPrice");
-                    fp.setAccessible(true);
-                    price = (Double) fp.get(data);
-                } catch (NoSuchFieldException e) {
-                    try {
-                        var rp = data.getClass().getDeclaredField("rentPrice");
-                        rp.setAccessible(true);
-                        price = (Double) rp.get(data);
-                    } catch (NoSuchFieldException ignored) {}
-                }
-                if (price != null) {
-                    minPrice = minPrice == null ? price : Math.min(minPrice, price);
-                    maxPrice = maxPrice == null ? price : Math.max(maxPrice, price);
-                }
-
-                // mortgagePrice (only for rent properties)
-                if ("rent".equals(ownership)) {
-                    try {
-                        var mp = data.getClass().getDeclaredField("mortgagePrice");
-                        mp.setAccessible(true);
-                        Double mortgagePrice = (Double) mp.get(data);
-                        if (mortgagePrice != null) {
-                            minMortgagePrice = minMortgagePrice == null ? mortgagePrice : Math.min(minMortgagePrice, mortgagePrice);
-                            maxMortgagePrice = maxMortgagePrice == null ? mortgagePrice : Math.max(maxMortgagePrice, mortgagePrice);
-                        }
-                    } catch (NoSuchFieldException ignored) {}
-                }
-
-                // roomCount
-                try {
-                    var rc = item.getClass().getDeclaredField("roomCount");
-                    rc.setAccessible(true);
-                    Integer v = (Integer) rc.get(item);
-                    if (v != null) { minRoom = minRoom == null ? v : Math.min(minRoom, v); maxRoom = maxRoom == null ? v : Math.max(maxRoom, v); }
-                } catch (NoSuchFieldException ignored) {}
-
-                // floorCount
-                try {
-                    var fc = item.getClass().getDeclaredField("floorCount");
-                    fc.setAccessible(true);
-                    Integer v = (Integer) fc.get(item);
-                    if (v != null) { minFloor = minFloor == null ? v : Math.min(minFloor, v); maxFloor = maxFloor == null ? v : Math.max(maxFloor, v); }
-                } catch (NoSuchFieldException ignored) {}
+    private static void addPredicate(List<RangePredicate> predicates, Attribute attribute, Number min, Number max) {
+        RangePredicate predicate = RangePredicate.of(attribute, min, max);
+        if (predicate != null) predicates.add(predicate);
+    }
 
-                // yardArea
-                try {
-                    var ya = item.getClass().getDeclaredField("yardArea");
-                    ya.setAccessible(true);
-                    Double v = (Double) ya.get(item);
-                    if (v != null) { minYardArea = minYardArea == null ? v : Math.min(minYardArea, v); maxYardArea = maxYardArea == null ? v : Math.max(maxYardArea, v); }
-                } catch (NoSuchFieldException ignored) {}
+    public Map<String, Object> stats(String ownership, String propertyType) {
+        Set<Attribute> attributes = EnumSet.allOf(Attribute.class);
+        // Mortgage price is only reported when asked for rent listings explicitly
+        if (!"rent".equals(ownership)) attributes.remove(Attribute.MORTGAGE_PRICE);
+        List<Category> categories = categories(ownership, propertyType);
+        return queryCache.get("stats|" + categories + "|" + attributes, categories, result -> 1,
+                () -> stats(categories, attributes));
+    }
 
-            } catch (Exception ignored) {}
-        }
+    private Map<String, Object> stats(List<Category> categories, Set<Attribute> attributes) {
+        Summary summary = indexManager.summarize(categories, attributes);
 
         Map<String, Object> result = new java.util.HashMap<>();
-        result.put("minArea", minArea); result.put("maxArea", maxArea);
-        result.put("minPrice", minPrice); result.put("maxPrice", maxPrice);
-        result.put("minRoomCount", minRoom); result.put("maxRoomCount", maxRoom);
-        result.put("minFloorCount", minFloor); result.put("maxFloorCount", maxFloor);
-        result.put("minYardArea", minYardArea); result.put("maxYardArea", maxYardArea);
-        result.put("minMortgagePrice", minMortgagePrice); result.put("maxMortgagePrice", maxMortgagePrice);
+        for (Attribute attribute : Attribute.values()) {
+            boolean seen = summary.has(attribute);
+            result.put("min" + attribute.getSuffix(), !seen ? null : attribute.isIntegral() ? (Object) (int) summary.min(attribute) : (Object) summary.min(attribute));
+            result.put("max" + attribute.getSuffix(), !seen ? null : attribute.isIntegral() ? (Object) (int) summary.max(attribute) : (Object) summary.max(attribute));
+        }
         return result;
     }
 }
-
-
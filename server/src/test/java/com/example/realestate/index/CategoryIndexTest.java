@@ -0,0 +1,99 @@
+package com.example.realestate.index;
+
+import com.example.realestate.model.Attribute;
+import com.example.realestate.model.Category;
+import com.example.realestate.model.Listing;
+import com.example.realestate.model.RealEstateModels.ApartmentRent;
+import com.example.realestate.model.RealEstateModels.RentData;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CategoryIndexTest {
+
+    @Test
+    void versionIsUnaffectedByLaterBatches() {
+        CategoryIndex index = new CategoryIndex(Category.RENT_APARTMENT, RangeKernel.SCALAR);
+        CategoryIndex.Version first = index.rebuild(apartments(0, 100), 1);
+        List<RangePredicate> cheap = List.of(new RangePredicate(Attribute.PRICE, 1000, 1009));
+        GeoPredicate near = GeoPredicate.radius(35.7, 51.4, 5);
+
+        // Inserts that grow every array, and deletes of listings the first version returns
+        CategoryIndex.Version second = index.apply(apartments(100, 5000),
+                List.of(apartment(0), apartment(3), apartment(42)));
+
+        assertThat(first.size()).isEqualTo(100);
+        assertThat(filter(first, cheap, null)).containsExactly("0", "1", "2", "3", "4", "5", "6", "7", "8", "9");
+        assertThat(filter(first, List.of(), near)).hasSize(100);
+        assertThat(keyword(first, "no42;")).containsExactly("42");
+        assertThat(keyword(first, "no4242;")).isEmpty();
+        assertThat(first.countKeyword("str")).isEqualTo(100);
+
+        assertThat(second.size()).isEqualTo(4997);
+        assertThat(filter(second, cheap, null)).containsExactly("1", "2", "4", "5", "6", "7", "8", "9");
+        assertThat(filter(second, List.of(), near)).hasSize(4997);
+        assertThat(keyword(second, "no42;")).isEmpty();
+        assertThat(keyword(second, "no4242;")).containsExactly("4242");
+        assertThat(second.countKeyword("str")).isEqualTo(4997);
+    }
+
+    @Test
+    void boundsFollowInsertsAndDeletes() {
+        CategoryIndex index = new CategoryIndex(Category.RENT_APARTMENT, RangeKernel.SCALAR);
+        CategoryIndex.Version version = index.rebuild(apartments(0, 10), 1);
+        assertThat(bounds(version, Attribute.PRICE)).containsExactly(1000.0, 1009.0);
+
+        // Removing one of two listings at the bound keeps it; removing the other moves it
+        version = index.apply(List.of(apartment("twin", 1000), apartment(20)), List.of(apartment(0)));
+        assertThat(bounds(version, Attribute.PRICE)).containsExactly(1000.0, 1020.0);
+        version = index.apply(List.of(), List.of(apartment("twin", 1000), apartment(20)));
+        assertThat(bounds(version, Attribute.PRICE)).containsExactly(1001.0, 1009.0);
+
+        // A listing without data leaves the bounds alone, and without any listings there are none
+        version = index.apply(List.of(new ApartmentRent("empty", 2, 3, null)), List.of());
+        assertThat(bounds(version, Attribute.PRICE)).containsExactly(1001.0, 1009.0);
+        version = index.apply(List.of(), apartments(1, 10));
+        assertThat(bounds(version, Attribute.PRICE)).isEmpty();
+    }
+
+    private static List<Double> bounds(CategoryIndex.Version version, Attribute attribute) {
+        Summary summary = new Summary();
+        version.summarize(Set.of(attribute), summary);
+        return summary.has(attribute) ? List.of(summary.min(attribute), summary.max(attribute)) : List.of();
+    }
+
+    private static List<String> filter(CategoryIndex.Version version, List<RangePredicate> predicates, GeoPredicate geo) {
+        PageBuilder page = new PageBuilder(0, Integer.MAX_VALUE, false);
+        CategoryIndex.Scan scan = version.filterScan(predicates, geo, -1);
+        scan.run(0, scan.size(), page);
+        return ids(page);
+    }
+
+    private static List<String> keyword(CategoryIndex.Version version, String term) {
+        PageBuilder page = new PageBuilder(0, Integer.MAX_VALUE, false);
+        CategoryIndex.Scan scan = version.keywordScan(term, -1);
+        scan.run(0, scan.size(), page);
+        return ids(page);
+    }
+
+    private static List<String> ids(PageCollector page) {
+        return page.items().stream().map(item -> ((Listing) item).getId()).toList();
+    }
+
+    private static List<Listing> apartments(int from, int to) {
+        return IntStream.range(from, to).mapToObj(CategoryIndexTest::apartment).toList();
+    }
+
+    private static Listing apartment(int id) {
+        return apartment(String.valueOf(id), 1000 + id);
+    }
+
+    private static Listing apartment(String id, double price) {
+        return new ApartmentRent(id, 2, 3, new RentData("Main Street No" + id + ";", "owner@example.com",
+                80, price, 5000, "Jane Doe", 35.7, 51.4));
+    }
+}
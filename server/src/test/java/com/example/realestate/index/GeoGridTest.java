@@ -0,0 +1,107 @@
+package com.example.realestate.index;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.BitSet;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class GeoGridTest {
+
+    @Test
+    void candidatesCoverEveryPointInsideTheBound() {
+        Random random = new Random(3);
+        int rows = 20_000;
+        double[] lats = new double[rows];
+        double[] lons = new double[rows];
+        GeoGrid grid = new GeoGrid();
+        // The first points sit on the poles and the antimeridian
+        double[][] edges = {{90, 0}, {-90, 45}, {12.34, 180}, {-12.34, -180}, {90, 180}};
+        for (int row = 0; row < rows; row++) {
+            // Half of the others sit exactly on cell borders
+            boolean onBorder = row % 2 == 0;
+            lats[row] = row < edges.length ? edges[row][0]
+                    : onBorder ? Math.round((random.nextDouble() * 180 - 90) * 100) / 100.0 : random.nextDouble() * 180 - 90;
+            lons[row] = row < edges.length ? edges[row][1]
+                    : onBorder ? Math.round((random.nextDouble() * 360 - 180) * 100) / 100.0 : random.nextDouble() * 360 - 180;
+            grid.add(row, lats[row], lons[row]);
+        }
+
+        for (int i = 0; i < 300; i++) {
+            double lat = random.nextDouble() * 180 - 90, lon = random.nextDouble() * 360 - 180;
+            GeoPredicate geo = i % 2 == 0
+                    ? GeoPredicate.radius(lat, lon, 1 + random.nextDouble() * 2000)
+                    : GeoPredicate.of(null, null, null, lat, Math.min(90, lat + random.nextDouble() * 20),
+                    lon, wrap(lon + random.nextDouble() * 40));
+            BitSet hits = new BitSet();
+            grid.collect(geo, rows, hits);
+            for (int row = 0; row < rows; row++) {
+                if (geo.test(lats[row], lons[row])) assertThat(hits.get(row)).as("%s row %d", geo, row).isTrue();
+            }
+            assertThat(grid.count(geo, rows)).isEqualTo(hits.cardinality());
+        }
+    }
+
+    @Test
+    void boxAcrossTheAntimeridianHoldsBothEdges() {
+        GeoPredicate box = GeoPredicate.of(null, null, null, -10.0, 10.0, 179.0, -179.0);
+
+        assertThat(box.crossesAntimeridian()).isTrue();
+        assertThat(box.test(0, 180)).isTrue();
+        assertThat(box.test(0, -180)).isTrue();
+        assertThat(box.test(0, 179)).isTrue();
+        assertThat(box.test(0, -179)).isTrue();
+        assertThat(box.test(10, 179.5)).isTrue();
+        assertThat(box.test(0, 0)).isFalse();
+        assertThat(box.test(10.001, 179.5)).isFalse();
+        assertThat(box.test(Double.NaN, 179.5)).isFalse();
+
+        GeoGrid grid = new GeoGrid();
+        grid.add(0, 0, 180);
+        grid.add(1, 0, -180);
+        grid.add(2, 0, 0);
+        grid.add(3, 5, 179.999);
+        BitSet hits = new BitSet();
+        grid.collect(box, 4, hits);
+        assertThat(hits.stream().toArray()).containsExactly(0, 1, 3);
+    }
+
+    @Test
+    void radiusIsMeasuredOnTheSphere() {
+        // One degree of latitude is about 111.2 km everywhere
+        GeoPredicate near = GeoPredicate.radius(50, 8, 111.5);
+        assertThat(near.test(51, 8)).isTrue();
+        assertThat(near.test(49, 8)).isTrue();
+        assertThat(near.test(50, 9)).isTrue();
+        assertThat(near.test(51, 9)).isFalse();
+        assertThat(near.test(51.01, 8)).isFalse();
+
+        // Around the antimeridian the circle wraps, and reaching over the pole it covers every longitude
+        GeoPredicate wrapped = GeoPredicate.radius(0, 179.9, 50);
+        assertThat(wrapped.crossesAntimeridian()).isTrue();
+        assertThat(wrapped.test(0, -179.9)).isTrue();
+        GeoPredicate polar = GeoPredicate.radius(89.5, 0, 120);
+        assertThat(polar.test(89.5, 180)).isTrue();
+        assertThat(polar.test(90, -123)).isTrue();
+    }
+
+    @Test
+    void leavesOutRowsPastTheRowCount() {
+        GeoGrid grid = new GeoGrid();
+        for (int row = 0; row < 10; row++) {
+            grid.add(row, 35.7, 51.4);
+        }
+        GeoPredicate geo = GeoPredicate.radius(35.7, 51.4, 1);
+
+        BitSet hits = new BitSet();
+        grid.collect(geo, 6, hits);
+        assertThat(hits.stream().toArray()).containsExactly(0, 1, 2, 3, 4, 5);
+        assertThat(grid.count(geo, 6)).isEqualTo(6);
+        assertThat(grid.count(geo, 10)).isEqualTo(10);
+    }
+
+    private static double wrap(double longitude) {
+        return longitude > 180 ? longitude - 360 : longitude;
+    }
+}
@@ -0,0 +1,86 @@
+package com.example.realestate.index;
+
+import com.example.realestate.model.Category;
+import com.example.realestate.model.Listing;
+import com.example.realestate.model.RealEstateModels.ApartmentRent;
+import com.example.realestate.model.RealEstateModels.RentData;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PageCursorTest {
+
+    @Test
+    void encodesAndDecodesEveryField() {
+        PageCursor plain = new PageCursor(17, Category.RENT_VILLA, 42, null, 0);
+        PageCursor sorted = new PageCursor(17, Category.SALE_SHOP, 7, new Sort(Sort.Key.PRICE_PER_SQM, true), -0.125);
+
+        assertThat(PageCursor.decode(plain.encode())).isEqualTo(plain);
+        assertThat(PageCursor.decode(sorted.encode())).isEqualTo(sorted);
+        assertThatThrownBy(() -> PageCursor.decode("not a cursor")).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void resumingNeitherSkipsNorRepeatsAcrossDeletes() {
+        CategoryIndex index = new CategoryIndex(Category.RENT_APARTMENT, RangeKernel.SCALAR);
+        CategoryIndex.Version version = index.rebuild(apartments(0, 10), 1);
+
+        List<String> seen = new ArrayList<>();
+        PageBuilder page = new PageBuilder(0, 3, false);
+        run(version, page, null);
+        seen.addAll(ids(page));
+        PageCursor cursor = PageCursor.decode(page.next(version.generation()).encode());
+
+        // The last listing of the page and the first one after it go away, and one is added at the end
+        version = index.apply(apartments(10, 11), List.of(apartment(2), apartment(3)));
+        while (cursor != null) {
+            page = new PageBuilder(0, 3, false);
+            run(version, page, cursor);
+            seen.addAll(ids(page));
+            PageCursor next = page.next(version.generation());
+            cursor = next == null ? null : PageCursor.decode(next.encode());
+        }
+
+        assertThat(seen).containsExactly("0", "1", "2", "4", "5", "6", "7", "8", "9", "10");
+    }
+
+    @Test
+    void cursorSurvivesRenumberingTheRows() {
+        CategoryIndex index = new CategoryIndex(Category.RENT_APARTMENT, RangeKernel.SCALAR);
+        CategoryIndex.Version version = index.rebuild(apartments(0, 3000), 1);
+        PageBuilder page = new PageBuilder(0, 5, false);
+        run(version, page, null);
+        PageCursor cursor = page.next(version.generation());
+
+        // Removing more than half of the rows renumbers them
+        List<Listing> removed = IntStream.range(2, 2500).mapToObj(PageCursorTest::apartment).toList();
+        version = index.apply(List.of(), removed);
+        page = new PageBuilder(0, 3, false);
+        run(version, page, cursor);
+
+        assertThat(version.size()).isEqualTo(502);
+        assertThat(ids(page)).containsExactly("2500", "2501", "2502");
+    }
+
+    private static void run(CategoryIndex.Version version, PageCollector page, PageCursor after) {
+        CategoryIndex.Scan scan = version.filterScan(List.of(), null, after == null ? -1 : after.ordinal());
+        scan.run(0, scan.size(), page);
+    }
+
+    private static List<String> ids(PageCollector page) {
+        return page.items().stream().map(item -> ((Listing) item).getId()).toList();
+    }
+
+    private static List<Listing> apartments(int from, int to) {
+        return IntStream.range(from, to).mapToObj(PageCursorTest::apartment).toList();
+    }
+
+    private static Listing apartment(int id) {
+        return new ApartmentRent(String.valueOf(id), 2, 3, new RentData("1 Main Street", "owner@example.com", 80, 1000 + id, 5000, "Jane Doe", null, null));
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.realestate.index;
+
+import com.example.realestate.model.Attribute;
+import org.junit.jupiter.api.Test;
+
+import java.util.BitSet;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RangeIndexTest {
+
+    @Test
+    void rowsWithoutAValueMatchEveryRange() {
+        RangeIndex index = new RangeIndex();
+        index.add(0, 10);
+        index.add(1, Double.NaN);
+        index.add(2, 30);
+        index.add(3, Double.NaN);
+        index.merge();
+        index.add(4, 20);
+        RangeIndex.View view = index.view();
+
+        assertThat(collect(view, 15, 25)).containsExactly(1, 3, 4);
+        assertThat(view.count(15, 25)).isEqualTo(3);
+        assertThat(collect(view, 100, 200)).containsExactly(1, 3);
+        assertThat(collect(view, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY)).containsExactly(0, 1, 2, 3, 4);
+    }
+
+    @Test
+    void agreesWithThePredicateBeforeAndAfterMerges() {
+        Random random = new Random(7);
+        double[] values = new double[5000];
+        RangeIndex index = new RangeIndex();
+        RangeIndex.View early = null;
+        for (int row = 0; row < values.length; row++) {
+            // Few distinct values, so that bounds fall on runs of equal ones, and every tenth row without one
+            values[row] = random.nextInt(10) == 0 ? Double.NaN : random.nextInt(200);
+            index.add(row, values[row]);
+            index.mergeIfNeeded();
+            if (row == 999) early = index.view();
+        }
+        RangeIndex.View view = index.view();
+
+        for (int i = 0; i < 200; i++) {
+            double min = random.nextInt(220) - 10;
+            double max = min + random.nextInt(80);
+            check(view, values, values.length, min, max);
+            check(early, values, 1000, min, max);
+        }
+    }
+
+    private static void check(RangeIndex.View view, double[] values, int rowCount, double min, double max) {
+        RangePredicate predicate = new RangePredicate(Attribute.PRICE, min, max);
+        BitSet expected = new BitSet();
+        for (int row = 0; row < rowCount; row++) {
+            if (predicate.test(values[row])) expected.set(row);
+        }
+        BitSet hits = new BitSet();
+        view.collect(min, max, hits);
+        assertThat(hits).as("[%s, %s]", min, max).isEqualTo(expected);
+        assertThat(view.count(min, max)).isEqualTo(expected.cardinality());
+    }
+
+    private static int[] collect(RangeIndex.View view, double min, double max) {
+        BitSet hits = new BitSet();
+        view.collect(min, max, hits);
+        return hits.stream().toArray();
+    }
+}
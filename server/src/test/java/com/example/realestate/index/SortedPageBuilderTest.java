@@ -0,0 +1,82 @@
+package com.example.realestate.index;
+
+import com.example.realestate.model.Category;
+import com.example.realestate.model.Listing;
+import com.example.realestate.model.RealEstateModels.ApartmentRent;
+import com.example.realestate.model.RealEstateModels.RentData;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SortedPageBuilderTest {
+
+    @Test
+    void ascendingPagesStayStableAcrossDeletes() {
+        walk(new Sort(Sort.Key.PRICE, false));
+    }
+
+    @Test
+    void descendingPagesStayStableAcrossDeletes() {
+        walk(new Sort(Sort.Key.PRICE, true));
+    }
+
+    // Pages through 30 listings with many equal prices and two without one, deleting listings on
+    // both sides of the cursor after the first page
+    private static void walk(Sort sort) {
+        List<Listing> items = IntStream.range(0, 30).mapToObj(SortedPageBuilderTest::apartment).toList();
+        CategoryIndex index = new CategoryIndex(Category.RENT_APARTMENT, RangeKernel.SCALAR);
+        CategoryIndex.Version version = index.rebuild(items, 1);
+
+        List<String> expected = sorted(items, sort);
+        List<String> seen = new ArrayList<>();
+        SortedPageBuilder page = new SortedPageBuilder(sort, null, 0, 4);
+        run(version, page);
+        seen.addAll(ids(page));
+        assertThat(seen).isEqualTo(expected.subList(0, 4));
+        PageCursor cursor = PageCursor.decode(page.next(version.generation()).encode());
+
+        Set<String> deleted = Set.of(expected.get(1), expected.get(4), expected.get(17), expected.get(29));
+        version = index.apply(List.of(), items.stream().filter(item -> deleted.contains(item.getId())).toList());
+        while (cursor != null) {
+            page = new SortedPageBuilder(sort, cursor, 0, 4);
+            run(version, page);
+            seen.addAll(ids(page));
+            PageCursor next = page.next(version.generation());
+            cursor = next == null ? null : PageCursor.decode(next.encode());
+        }
+
+        List<String> remaining = new ArrayList<>(expected.subList(0, 4));
+        expected.subList(4, expected.size()).stream().filter(id -> !deleted.contains(id)).forEach(remaining::add);
+        assertThat(seen).isEqualTo(remaining);
+    }
+
+    // Expected order: by price in the requested direction, listings without a price last, ties in list order
+    private static List<String> sorted(List<Listing> items, Sort sort) {
+        Comparator<Listing> ascending = Comparator.comparingDouble(item -> item.getData().price());
+        Comparator<Listing> byPrice = sort.descending() ? ascending.reversed() : ascending;
+        Comparator<Listing> order = Comparator.<Listing, Boolean>comparing(item -> Double.isNaN(item.getData().price()))
+                .thenComparing((a, b) -> Double.isNaN(a.getData().price()) ? 0 : byPrice.compare(a, b))
+                .thenComparingInt(item -> Integer.parseInt(item.getId()));
+        return items.stream().sorted(order).map(Listing::getId).toList();
+    }
+
+    private static void run(CategoryIndex.Version version, PageCollector page) {
+        CategoryIndex.Scan scan = version.filterScan(List.of(), null, -1);
+        scan.run(0, scan.size(), page);
+    }
+
+    private static List<String> ids(PageCollector page) {
+        return page.items().stream().map(item -> ((Listing) item).getId()).toList();
+    }
+
+    private static Listing apartment(int id) {
+        double price = id % 10 == 9 && id < 20 ? Double.NaN : 100 * (id * 7 % 5);
+        return new ApartmentRent(String.valueOf(id), 2, 3, new RentData("1 Main Street", "owner@example.com", 80, price, 5000, "Jane Doe", null, null));
+    }
+}
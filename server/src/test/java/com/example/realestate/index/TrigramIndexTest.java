@@ -0,0 +1,79 @@
+package com.example.realestate.index;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TrigramIndexTest {
+    private static final String ALPHABET = "abcdefghijklmnop ";
+
+    @Test
+    void candidatesCoverEveryRowThatContainsTheTerm() {
+        Random random = new Random(42);
+        List<String> texts = new ArrayList<>();
+        TrigramIndex index = new TrigramIndex();
+        TrigramIndex.View early = null;
+        // Enough distinct trigrams that the table grows while rows are added
+        for (int row = 0; row < 3000; row++) {
+            if (row == 100) early = index.view();
+            String text = randomText(random, 5 + random.nextInt(40));
+            texts.add(text);
+            index.add(row, text);
+        }
+        TrigramIndex.View view = index.view();
+
+        for (int i = 0; i < 500; i++) {
+            String term = randomText(random, 1 + random.nextInt(5));
+            check(texts, view, term);
+            check(texts.subList(0, 100), early, term);
+        }
+    }
+
+    @Test
+    void viewLeavesOutRowsAddedAfterIt() {
+        TrigramIndex index = new TrigramIndex();
+        index.add(0, "green villa");
+        index.add(1, "red villa");
+        TrigramIndex.View before = index.view();
+        index.add(2, "blue villa");
+        index.add(3, "green house");
+        TrigramIndex.View after = index.view();
+
+        assertThat(before.candidates("villa", 2)).containsExactly(0, 1);
+        assertThat(before.candidates("gre", 2)).containsExactly(0);
+        assertThat(before.candidates("blu", 2)).isEmpty();
+        assertThat(after.candidates("villa", 4)).containsExactly(0, 1, 2);
+        assertThat(after.candidates("gre", 4)).containsExactly(0, 3);
+        assertThat(after.candidates("e", 4)).containsExactly(0, 1, 2, 3);
+    }
+
+    private static void check(List<String> texts, TrigramIndex.View view, String term) {
+        int[] candidates = view.candidates(term, texts.size());
+        int[] expected = matching(texts, term);
+        assertThat(candidates).isSorted();
+        assertThat(filter(texts, candidates, term)).as(term).containsExactly(expected);
+        if (term.length() == 3) assertThat(candidates).as(term).containsExactly(expected);
+    }
+
+    private static String randomText(Random random, int length) {
+        StringBuilder text = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            text.append(ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+        }
+        return text.toString();
+    }
+
+    private static int[] matching(List<String> texts, String term) {
+        return IntStream.range(0, texts.size()).filter(row -> texts.get(row).contains(term)).toArray();
+    }
+
+    private static int[] filter(List<String> texts, int[] rows, String term) {
+        return Arrays.stream(rows).filter(row -> texts.get(row).contains(term)).toArray();
+    }
+}
@@ -0,0 +1,115 @@
+package com.example.realestate.repository;
+
+import com.example.realestate.model.Category;
+import com.example.realestate.model.Listing;
+import com.example.realestate.model.RealEstateModels.ApartmentRent;
+import com.example.realestate.model.RealEstateModels.RealEstate;
+import com.example.realestate.model.RealEstateModels.RentData;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FileBackedRepositoryTest {
+
+    @TempDir
+    Path dir;
+
+    private final List<FileBackedRepository> opened = new ArrayList<>();
+
+    @AfterEach
+    void closeAll() throws Exception {
+        for (FileBackedRepository repository : opened) {
+            repository.destroy();
+        }
+    }
+
+    @Test
+    void restartRestoresTheSeedAndEveryLoggedMutation() throws Exception {
+        RealEstate seed = new RealEstate();
+        seed.getRent().getResidential().getApartment().addAll(List.of(apartment("a"), apartment("b"), apartment("c")));
+        new ObjectMapper().writeValue(dir.resolve("realestate.json").toFile(), seed);
+
+        FileBackedRepository first = open(3);
+        first.insert(Category.RENT_APARTMENT, apartment("d"));
+        assertThat(first.delete(Category.RENT_APARTMENT, "b")).isTrue();
+        assertThat(ids(first)).containsExactly("a", "c", "d");
+        first.destroy();
+        opened.remove(first);
+
+        FileBackedRepository second = open(3);
+        assertThat(ids(second)).containsExactly("a", "c", "d");
+        assertThat(second.find("b")).isNull();
+        assertThat(second.find("d").category()).isEqualTo(Category.RENT_APARTMENT);
+    }
+
+    @Test
+    void restartCutsOffAWriteTornByACrash() throws Exception {
+        FileBackedRepository first = open(3);
+        first.insert(Category.RENT_APARTMENT, apartment("a"));
+        first.insert(Category.RENT_APARTMENT, apartment("b"));
+        first.destroy();
+        opened.remove(first);
+        Files.write(newestSegment(), new byte[]{0, 0, 1, 0, 42}, StandardOpenOption.APPEND);
+
+        FileBackedRepository second = open(3);
+        assertThat(ids(second)).containsExactly("a", "b");
+        second.insert(Category.RENT_APARTMENT, apartment("c"));
+        second.destroy();
+        opened.remove(second);
+
+        assertThat(ids(open(3))).containsExactly("a", "b", "c");
+    }
+
+    @Test
+    void oldestRetainedSnapshotStillReplaysEverythingAfterIt() throws Exception {
+        FileBackedRepository first = open(2);
+        for (int i = 0; i < 5; i++) {
+            first.insert(Category.RENT_APARTMENT, apartment("l" + i));
+            first.persist();
+        }
+        first.destroy();
+        opened.remove(first);
+        // One segment per retained generation, plus the one being written
+        try (Stream<Path> segments = Files.list(dir.resolve("wal"))) {
+            assertThat(segments.count()).isEqualTo(3);
+        }
+
+        Files.writeString(dir.resolve("realestate.json"), "{");
+        Files.writeString(dir.resolve("realestate.json.1"), "{");
+        assertThat(ids(open(2))).containsExactly("l0", "l1", "l2", "l3", "l4");
+    }
+
+    private FileBackedRepository open(int retainSnapshots) throws Exception {
+        FileBackedRepository repository = new FileBackedRepository(dir.toString(), 1_000_000, 3_600_000,
+                "always", 5, 1024, "json", retainSnapshots, new SimpleMeterRegistry());
+        repository.afterPropertiesSet();
+        opened.add(repository);
+        return repository;
+    }
+
+    private Path newestSegment() throws IOException {
+        try (Stream<Path> files = Files.list(dir.resolve("wal"))) {
+            return files.max(Path::compareTo).orElseThrow();
+        }
+    }
+
+    private static List<String> ids(FileBackedRepository repository) {
+        return repository.snapshot().listOf(Category.RENT_APARTMENT).stream().map(Listing::getId).toList();
+    }
+
+    private static ApartmentRent apartment(String id) {
+        return new ApartmentRent(id, 2, 3, new RentData("1 Main Street", "owner@example.com", 80, 1200, 5000, "Jane Doe", null, null));
+    }
+}
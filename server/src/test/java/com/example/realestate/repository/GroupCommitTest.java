@@ -0,0 +1,50 @@
+package com.example.realestate.repository;
+
+import com.example.realestate.model.Category;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class GroupCommitTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void aFailedSyncFailsEveryLaterWait() throws IOException {
+        IOException cause = new IOException("disk gone");
+        int[] syncs = new int[1];
+        try (MutationLog log = new MutationLog(dir) {
+            @Override
+            public void sync() throws IOException {
+                if (++syncs[0] == 2) throw cause;
+                super.sync();
+            }
+        }) {
+            GroupCommit commit = new GroupCommit(log, GroupCommit.Durability.ALWAYS, 0, new SimpleMeterRegistry().timer("sync"));
+            log.rotate();
+            commit.awaitDurable(log.append(List.of(delete("a"))));
+            assertThat(commit.getFailure()).isNull();
+
+            long failed = log.append(List.of(delete("b")));
+            assertThatThrownBy(() -> commit.awaitDurable(failed)).hasCause(cause);
+            assertThat(commit.getFailure()).isSameAs(cause);
+
+            // The next sync would succeed, but what it covers can no longer be vouched for
+            long later = log.append(List.of(delete("c")));
+            assertThatThrownBy(() -> commit.awaitDurable(later)).hasCause(cause);
+            assertThat(syncs[0]).isEqualTo(2);
+        }
+    }
+
+    private static MutationLog.Entry delete(String id) {
+        return MutationLog.Entry.delete(Category.SALE_VILLA, id);
+    }
+}
@@ -0,0 +1,150 @@
+package com.example.realestate.repository;
+
+import com.example.realestate.model.Category;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class MutationLogTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void replaysEveryRecordInLogOrder() throws IOException {
+        try (MutationLog log = new MutationLog(dir)) {
+            log.rotate();
+            assertThat(log.append(List.of(insert("a"), insert("b")))).isEqualTo(2);
+            log.rotate();
+            assertThat(log.append(List.of(MutationLog.Entry.delete(Category.RENT_LAND, "a")))).isEqualTo(3);
+        }
+
+        List<MutationLog.Entry> replayed = replay();
+        assertThat(replayed).extracting(MutationLog.Entry::seq).containsExactly(1L, 2L, 3L);
+        assertThat(replayed).extracting(MutationLog.Entry::id).containsExactly("a", "b", "a");
+        assertThat(replayed).extracting(MutationLog.Entry::op)
+                .containsExactly(MutationLog.Op.INSERT, MutationLog.Op.INSERT, MutationLog.Op.DELETE);
+        assertThat(new String(replayed.get(1).payload(), StandardCharsets.UTF_8)).isEqualTo("{\"id\":\"b\"}");
+        assertThat(replayed.get(2).category()).isEqualTo(Category.RENT_LAND);
+    }
+
+    @Test
+    void cutsOffATornTailAndGoesOnAfterIt() throws IOException {
+        Path segment;
+        try (MutationLog log = new MutationLog(dir)) {
+            log.rotate();
+            log.append(List.of(insert("a"), insert("b")));
+            segment = log.getCurrentSegment();
+        }
+        long intact = Files.size(segment);
+        // A record header promising more bytes than were written, as a crash in the middle of a write leaves it
+        Files.write(segment, new byte[]{0, 0, 0, 100, 1, 2, 3}, StandardOpenOption.APPEND);
+
+        assertThat(replay()).extracting(MutationLog.Entry::id).containsExactly("a", "b");
+        assertThat(Files.size(segment)).isEqualTo(intact);
+
+        try (MutationLog log = new MutationLog(dir)) {
+            log.replay(entry -> { });
+            log.rotate();
+            assertThat(log.append(List.of(insert("c")))).isEqualTo(3);
+        }
+        assertThat(replay()).extracting(MutationLog.Entry::id).containsExactly("a", "b", "c");
+    }
+
+    @Test
+    void dropsARecordWithABadChecksumAndEverythingAfterIt() throws IOException {
+        Path segment;
+        try (MutationLog log = new MutationLog(dir)) {
+            log.rotate();
+            log.append(List.of(insert("a")));
+            segment = log.getCurrentSegment();
+            long first = Files.size(segment);
+            log.append(List.of(insert("b"), insert("c")));
+            // Flip a byte inside the body of the second record
+            byte[] bytes = Files.readAllBytes(segment);
+            bytes[(int) first + Integer.BYTES + 2] ^= 0x7f;
+            Files.write(segment, bytes);
+        }
+
+        assertThat(replay()).extracting(MutationLog.Entry::id).containsExactly("a");
+    }
+
+    @Test
+    void failsOnABadRecordInAnOlderSegmentInsteadOfCuttingItOff() throws IOException {
+        Path older;
+        try (MutationLog log = new MutationLog(dir)) {
+            log.rotate();
+            log.append(List.of(insert("a")));
+            older = log.getCurrentSegment();
+            long first = Files.size(older);
+            log.append(List.of(insert("b"), insert("c")));
+            log.rotate();
+            log.append(List.of(insert("d")));
+            byte[] bytes = Files.readAllBytes(older);
+            bytes[(int) first + Integer.BYTES + 2] ^= 0x7f;
+            Files.write(older, bytes);
+        }
+        byte[] corrupt = Files.readAllBytes(older);
+
+        // b and c were acknowledged, so replaying d on top of a would silently lose them
+        assertThatThrownBy(this::replay).isInstanceOf(IOException.class).hasMessageContaining("seq 2");
+        assertThat(Files.readAllBytes(older)).isEqualTo(corrupt);
+    }
+
+    @Test
+    void cutsOffTheAbandonedTailOfAnOlderSegment() throws IOException {
+        Path older;
+        try (MutationLog log = new MutationLog(dir)) {
+            log.rotate();
+            log.append(List.of(insert("a"), insert("b")));
+            older = log.getCurrentSegment();
+            log.rotate();
+            log.append(List.of(insert("c")));
+        }
+        long intact = Files.size(older);
+        // A failed append that could not be cut off, after which the log went on in a new segment
+        Files.write(older, new byte[]{0, 0, 0, 100, 1, 2, 3}, StandardOpenOption.APPEND);
+
+        assertThat(replay()).extracting(MutationLog.Entry::id).containsExactly("a", "b", "c");
+        assertThat(Files.size(older)).isEqualTo(intact);
+    }
+
+    @Test
+    void failsOnAGapBetweenSegments() throws IOException {
+        Path missing;
+        try (MutationLog log = new MutationLog(dir)) {
+            log.rotate();
+            log.append(List.of(insert("a")));
+            log.rotate();
+            log.append(List.of(insert("b")));
+            missing = log.getCurrentSegment();
+            log.rotate();
+            log.append(List.of(insert("c")));
+        }
+        Files.delete(missing);
+
+        assertThatThrownBy(this::replay).isInstanceOf(IOException.class).hasMessageContaining("starts at 3");
+    }
+
+    private List<MutationLog.Entry> replay() throws IOException {
+        List<MutationLog.Entry> entries = new ArrayList<>();
+        try (MutationLog log = new MutationLog(dir)) {
+            log.replay(entries::add);
+        }
+        return entries;
+    }
+
+    private static MutationLog.Entry insert(String id) {
+        return MutationLog.Entry.insert(Category.SALE_LAND, id, ("{\"id\":\"" + id + "\"}").getBytes(StandardCharsets.UTF_8));
+    }
+}